@@ -1,24 +1,36 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
 
 @Slf4j
+@Validated  // проверка элементов списка в теле пакетного запроса (List<@Valid Film>)
 @RestController
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
 
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -28,6 +40,14 @@ public class FilmController {
         return filmService.addFilm(film);
     }
 
+    // Пакетное добавление фильмов (загрузка каталогов партнеров)
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<Film> addFilms(@RequestBody List<@Valid Film> films) {
+
+        return filmService.addFilms(films);
+    }
+
     @PutMapping
     @ResponseStatus(HttpStatus.OK)
     public Film updateFilm(@Valid @RequestBody Film updatedFilm) {
@@ -40,10 +60,33 @@ public class FilmController {
         return filmService.findFilmById(id);
     }
 
+    // Без параметров — все фильмы; с after и/или limit — страница по id (keyset-пагинация);
+    // с genres — только фильмы со всеми (match=all) или хотя бы одним (match=any) из перечисленных жанров
     @GetMapping
-    public Collection<Film> getAllFilms() {
+    public Collection<Film> getAllFilms(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<Integer> genres,
+            @RequestParam(defaultValue = "all") String match) {
+        if (genres != null) {
+            return filmService.getFilmsByGenres(genres, match, after, limit);
+        }
+        if (after == null && limit == null) {
+            return filmService.getAllFilms();
+        }
+        return filmService.getFilmsPage(after, limit);
+    }
+
+    // Потоковая выгрузка всего каталога (Accept: application/x-ndjson): по одному фильму в строке,
+    // фильм пишется в ответ сразу после чтения из БД
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllFilms() {
+        StreamingResponseBody body = outputStream ->
+                filmService.streamAllFilms(film -> writeNdjsonLine(outputStream, film));
 
-        return filmService.getAllFilms();
+        return ResponseEntity.ok()
+                             .contentType(MediaType.APPLICATION_NDJSON)
+                             .body(body);
     }
 
     // Пользователь ставит лайк фильму
@@ -53,6 +96,12 @@ public class FilmController {
         filmService.addLike(id, userId);
     }
 
+    // Пакетная загрузка лайков, накопленных клиентом офлайн; в ответе — реально добавленные лайки
+    @PostMapping("/likes/batch")
+    public List<FilmLike> addLikes(@RequestBody List<@Valid FilmLike> likes) {
+        return filmService.addLikes(likes);
+    }
+
     // Пользователь удаляет лайк
     @DeleteMapping("/{id}/like/{userId}")
     public void removeLike(@PathVariable int id,
@@ -60,10 +109,31 @@ public class FilmController {
         filmService.removeLike(id, userId);
     }
 
-    // Возвращается список из первых count фильмов по количеству лайков
+    // Возвращается список из первых count фильмов по количеству лайков, при необходимости — только
+    // фильмов заданного жанра, рейтинга MPA и года выхода
     @GetMapping("/popular")
     public List<Film> getPopularFilms(
-            @RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopularFilms(count);
+            @RequestParam(defaultValue = "10") int count,
+            @RequestParam(required = false) Integer genreId,
+            @RequestParam(required = false) Integer mpaId,
+            @RequestParam(required = false) Integer year) {
+        return filmService.getPopularFilms(count, genreId, mpaId, year);
+    }
+
+    // Похожие фильмы: те, что лайкали в основном те же пользователи
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilarFilms(
+            @PathVariable int id,
+            @RequestParam(defaultValue = "10") int limit) {
+        return filmService.getSimilarFilms(id, limit);
+    }
+
+    private void writeNdjsonLine(OutputStream outputStream, Film film) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(film));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи фильма " + film.getId() + " в поток ответа", e);
+        }
     }
 }
@@ -3,10 +3,18 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserDistance;
+import ru.yandex.practicum.filmorate.model.UserImportResult;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserImportService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 
@@ -16,9 +24,13 @@ import java.util.List;
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final FilmService filmService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserImportService userImportService, FilmService filmService) {
         this.userService = userService;
+        this.userImportService = userImportService;
+        this.filmService = filmService;
     }
 
     @PostMapping
@@ -27,6 +39,13 @@ public class UserController {
         return userService.addUser(user);
     }
 
+    // Потоковый импорт пользователей (Content-Type: application/x-ndjson): по одному пользователю в строке,
+    // в ответе — число добавленных и ошибки по номерам строк
+    @PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public UserImportResult importUsers(InputStream body) throws IOException {
+        return userImportService.importUsers(body);
+    }
+
     @PutMapping
     @ResponseStatus(HttpStatus.OK)
     public User updateUser(@Valid @RequestBody User user) {
@@ -38,9 +57,15 @@ public class UserController {
         return userService.findUserById(id);
     }
 
+    // Без параметров — все пользователи; с after и/или limit — страница по id (keyset-пагинация)
     @GetMapping
-    public Collection<User> getAllUsers() {
-        return userService.getAllUsers();
+    public Collection<User> getAllUsers(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return userService.getAllUsers();
+        }
+        return userService.getUsersPage(after, limit);
     }
 
     // Добавление в друзья
@@ -70,5 +95,36 @@ public class UserController {
             @PathVariable int otherId) {
         return userService.getCommonFriends(id, otherId);
     }
-}
 
+    // Возможные друзья: друзья друзей по убыванию числа общих друзей
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(
+            @PathVariable int id,
+            @RequestParam(required = false) Integer limit) {
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    // Степень разделения: длина кратчайшей цепочки дружбы до другого пользователя
+    @GetMapping("/{id}/distance/{otherId}")
+    public UserDistance getDistance(
+            @PathVariable int id,
+            @PathVariable int otherId) {
+        return userService.getDistance(id, otherId);
+    }
+
+    // Рекомендации фильмов по лайкам пользователей с похожими вкусами
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(
+            @PathVariable int id,
+            @RequestParam(defaultValue = "10") int limit) {
+        return filmService.getRecommendations(id, limit);
+    }
+
+    // Лента друзей: фильмы, которые чаще всего лайкали друзья пользователя
+    @GetMapping("/{id}/feed")
+    public List<Film> getFriendsFeed(
+            @PathVariable int id,
+            @RequestParam(defaultValue = "10") int limit) {
+        return filmService.getFriendsFeed(id, limit);
+    }
+}
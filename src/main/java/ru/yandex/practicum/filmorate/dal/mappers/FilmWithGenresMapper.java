@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.dal.mappers;
+
+import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Фильм вместе с жанрами из одной строки: id жанров приходят строкой через запятую (колонка genre_ids,
+// агрегируется в SQL по возрастанию id), названия берутся из справочника жанров в памяти.
+public class FilmWithGenresMapper implements RowMapper<Film> {
+    private final FilmMapper filmMapper = new FilmMapper();
+    private final GenreStorage genreStorage;
+
+    public FilmWithGenresMapper(GenreStorage genreStorage) {
+        this.genreStorage = genreStorage;
+    }
+
+    @Override
+    public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Film film = filmMapper.mapRow(rs, rowNum);
+        film.setGenres(parseGenres(film.getId(), rs.getString("genre_ids")));
+        return film;
+    }
+
+    // жанры проверяются по справочнику при записи фильма, поэтому промах кеша означает рассогласование данных:
+    // ошибка вместо жанра без названия
+    private List<Genre> parseGenres(int filmId, String genreIds) {
+        List<Genre> genres = new ArrayList<>();
+        if (genreIds == null || genreIds.isEmpty()) {
+            return genres;
+        }
+
+        for (String genreId : genreIds.split(",")) {
+            int id = Integer.parseInt(genreId.trim());
+            genres.add(genreStorage.getGenreById(id)
+                                   .orElseThrow(() -> new NotFoundException(
+                                           "Жанр с ID " + id + " фильма " + filmId + " не найден в справочнике")));
+        }
+        return genres;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.dal.migration;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Версионные миграции схемы: скрипты db/migration/V<номер>__<описание>.sql применяются по возрастанию номера
+// ровно один раз, примененные версии хранятся в таблице schema_version.
+// schema.sql создает таблицы в актуальном виде для новой БД, а миграции доводят до него уже существующие
+// файловые БД, поэтому каждый скрипт должен быть идемпотентным по отношению к свежей схеме.
+@Slf4j
+@Component("schemaMigrator")
+public class SchemaMigrator {
+
+    private static final String MIGRATIONS_LOCATION = "classpath*:db/migration/V*__*.sql";
+    private static final Pattern MIGRATION_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SchemaMigrator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                "version INT PRIMARY KEY, " +
+                "description VARCHAR(200) NOT NULL, " +
+                "installed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+
+        Set<Integer> appliedVersions = new HashSet<>(
+                jdbcTemplate.queryForList("SELECT version FROM schema_version", Integer.class));
+
+        for (Migration migration : findMigrations()) {
+            if (appliedVersions.contains(migration.version())) {
+                continue;
+            }
+            apply(migration);
+        }
+    }
+
+    private void apply(Migration migration) {
+        log.info("Применяем миграцию схемы V{}: {}", migration.version(), migration.description());
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            ScriptUtils.executeSqlScript(connection,
+                    new EncodedResource(migration.script(), StandardCharsets.UTF_8));
+            return null;
+        });
+
+        jdbcTemplate.update("INSERT INTO schema_version (version, description) VALUES (?, ?)",
+                migration.version(), migration.description());
+    }
+
+    // все скрипты миграций из classpath, отсортированные по номеру версии
+    private List<Migration> findMigrations() {
+        try {
+            Resource[] scripts = new PathMatchingResourcePatternResolver().getResources(MIGRATIONS_LOCATION);
+
+            return Arrays.stream(scripts)
+                         .map(SchemaMigrator::toMigration)
+                         .filter(Objects::nonNull)
+                         .sorted(Comparator.comparingInt(Migration::version))
+                         .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать скрипты миграций " + MIGRATIONS_LOCATION, e);
+        }
+    }
+
+    private static Migration toMigration(Resource script) {
+        Matcher matcher = MIGRATION_NAME.matcher(Objects.requireNonNull(script.getFilename()));
+        if (!matcher.matches()) {
+            log.warn("Пропускаем файл миграции с неверным именем: {}", script.getFilename());
+            return null;
+        }
+        return new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '), script);
+    }
+
+    private record Migration(int version, String description, Resource script) {
+    }
+}
@@ -2,56 +2,73 @@ package ru.yandex.practicum.filmorate.dal.storage;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.dal.mappers.FilmMapper;
-import ru.yandex.practicum.filmorate.dal.mappers.GenreMapper;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmWithGenresMapper;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreMask;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.dal.storage.memory.InMemoryStore;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.sql.Date;
-import java.util.ArrayList;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 @Qualifier("filmDbStorage")
+@Profile("!" + InMemoryStore.PROFILE)
 public class FilmDbStorage implements FilmStorage {
 
+    // Фильм, его MPA и id жанров одним запросом: id жанров склеиваются в строку по возрастанию
+    // коррелированным подзапросом по первичному ключу film_genres, названия берутся из справочника в памяти
+    private static final String FILM_SELECT = "SELECT f.*, m.name AS mpa_name, " +
+            "(SELECT LISTAGG(fg.genre_id, ',') WITHIN GROUP (ORDER BY fg.genre_id) " +
+            "FROM film_genres fg WHERE fg.film_id = f.id) AS genre_ids " +
+            "FROM films f JOIN mpa m ON f.mpa_id = m.id ";
+
+    // сколько строк драйвер забирает за один раз при потоковом чтении каталога
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final FilmWithGenresMapper filmWithGenresMapper;
 
-    public FilmDbStorage(NamedParameterJdbcTemplate namedJdbcTemplate) {
+    public FilmDbStorage(NamedParameterJdbcTemplate namedJdbcTemplate, GenreStorage genreStorage) {
 
         this.namedJdbcTemplate = namedJdbcTemplate;
+        this.filmWithGenresMapper = new FilmWithGenresMapper(genreStorage);
     }
 
     @Override
     public Film addFilm(Film film) {
-        String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id)" +
-                "VALUES (:name, :description, :releaseDate, :duration, :mpaId)";
+        String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id, genre_mask)" +
+                "VALUES (:name, :description, :releaseDate, :duration, :mpaId, :genreMask)";
 
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("name", film.getName())
-                .addValue("description", film.getDescription())
-                .addValue("releaseDate", Date.valueOf(film.getReleaseDate()))
-                .addValue("duration", film.getDuration())
-                .addValue("mpaId", film.getMpa().getId());
-
         namedJdbcTemplate.update(
                 sql,
-                params,
+                toFilmParams(film),
                 keyHolder,
                 new String[]{"id"} // Имя колонки для возврата сгенерированного ID
         );
@@ -64,45 +81,93 @@ public class FilmDbStorage implements FilmStorage {
         return film;
     }
 
+    // Пакетная вставка фильмов: все фильмы одним batch-запросом, сгенерированные id забираются разом,
+    // затем все связи с жанрами одним batch-запросом
+    @Override
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+
+        String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id, genre_mask)" +
+                "VALUES (:name, :description, :releaseDate, :duration, :mpaId, :genreMask)";
+
+        MapSqlParameterSource[] batchParams = films.stream()
+                                                   .map(this::toFilmParams)
+                                                   .toArray(MapSqlParameterSource[]::new);
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        namedJdbcTemplate.batchUpdate(sql, batchParams, keyHolder, new String[]{"id"});
+
+        // ключи возвращаются в порядке строк пакета
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < films.size(); i++) {
+            Number id = (Number) keys.get(i).values().iterator().next();
+            films.get(i).setId(id.intValue());
+        }
+
+        String genresSql = " INSERT INTO film_genres (film_id, genre_id) VALUES (:filmId, :genreId) ";
+        MapSqlParameterSource[] genresParams = films.stream()
+                                                    .flatMap(film -> film.getGenres().stream()
+                                                                         .map(Genre::getId)
+                                                                         .distinct()
+                                                                         .map(genreId -> new MapSqlParameterSource()
+                                                                                 .addValue("filmId", film.getId())
+                                                                                 .addValue("genreId", genreId)))
+                                                    .toArray(MapSqlParameterSource[]::new);
+
+        if (genresParams.length > 0) {
+            namedJdbcTemplate.batchUpdate(genresSql, genresParams);
+        }
+        return films;
+    }
+
+    // обновление фильма в одной транзакции: в film_genres пишется только разница между старыми и новыми жанрами
     @Override
+    @Transactional
     public Film updateFilm(Film film) {
 
-        Film existingFilm = findFilmById(film.getId()).get();
+        // блокируем строку фильма и одним запросом получаем id его текущих жанров
+        Set<Integer> storedGenreIds = lockFilmAndGetGenreIds(film.getId())
+                .orElseThrow(() -> new NotFoundException("Фильм с ID " + film.getId() + " не найден"));
 
+        // маска жанров пишется тем же запросом, что и сам фильм, под блокировкой строки
         String sql = "UPDATE films  SET name = :name, description = :description, " +
-                "release_date = :releaseDate, duration = :duration, mpa_id = :mpaId WHERE id = :id";
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("name", film.getName())
-                .addValue("description", film.getDescription())
-                .addValue("releaseDate", Date.valueOf(film.getReleaseDate()))
-                .addValue("duration", film.getDuration())
-                .addValue("mpaId", film.getMpa().getId())
+                "release_date = :releaseDate, duration = :duration, mpa_id = :mpaId, genre_mask = :genreMask " +
+                "WHERE id = :id";
+        MapSqlParameterSource params = toFilmParams(film)
                 .addValue("id", film.getId());
 
         namedJdbcTemplate.update(sql, params);
 
-        // Удалили строки из таблицы film_genres, ассоциированные со старой версией объект (по id)
-        delFilmGenresRelations(existingFilm);
+        Set<Integer> newGenreIds = film.getGenres().stream()
+                                       .map(Genre::getId)
+                                       .collect(Collectors.toCollection(LinkedHashSet::new));
 
-        //  Добавляем вновь пришедшие связи в film_genres
-        addFilmGenresRelations(film);
+        // удаляем жанры, которых больше нет у фильма
+        Set<Integer> removedGenreIds = new HashSet<>(storedGenreIds);
+        removedGenreIds.removeAll(newGenreIds);
+        delFilmGenresRelations(film.getId(), removedGenreIds);
+
+        // добавляем только новые жанры
+        Set<Integer> addedGenreIds = new LinkedHashSet<>(newGenreIds);
+        addedGenreIds.removeAll(storedGenreIds);
+        addFilmGenresRelations(film.getId(), addedGenreIds);
 
         return film;
     }
 
 
+    @Override
     public Optional<Film> findFilmById(int id) {
-        String sql = "SELECT f.*, m.name AS mpa_name " +
-                "FROM films f " +
-                "JOIN mpa m ON f.mpa_id = m.id " +
-                "WHERE f.id = :id ";
+        String sql = FILM_SELECT + "WHERE f.id = :id ";
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("id", id);
 
-        return namedJdbcTemplate.query(sql, params, new FilmMapper())
+        return namedJdbcTemplate.query(sql, params, filmWithGenresMapper)
                                 .stream()
-                                .findFirst()
-                                .map(this::loadGenresIntoFilm);   //  жанры вставляем
+                                .findFirst();
     }
 
 
@@ -117,154 +182,160 @@ public class FilmDbStorage implements FilmStorage {
         return Boolean.TRUE.equals(namedJdbcTemplate.queryForObject(sql, params, Boolean.class));
     }
 
+    // какие из переданных id фильмов есть в БД (одним запросом)
     @Override
-    public Collection<Film> getAllFilms() {
-        // 1. Получаем все фильмы с информацией о MPA, в том числе имя mpa вытащили из справочника
-        String filmsSql = "SELECT f.*, m.name AS mpa_name " +
-                "FROM films f JOIN mpa m ON f.mpa_id = m.id";
-        List<Film> films = namedJdbcTemplate.query(filmsSql, new FilmMapper());
-
-        if (films.isEmpty()) {
-            return Collections.emptyList();
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
         }
 
-        // 2. Получаем все жанры для всех фильмов и мэтчим их с именами жанров из справочника жанров
-        String genresSql = "SELECT fg.film_id, " +
-                "g.id AS genre_id," +
-                "g.name AS genre_name " +
-                "FROM film_genres fg " +
-                "JOIN genres g ON fg.genre_id = g.id ";
-
-        // мапа - каждый фильм со своим списком жанров
-        Map<Integer, List<Genre>> filmGenresMap = new HashMap<>();
-
-        namedJdbcTemplate.query(genresSql,
-                rs -> {
-                    int filmId = rs.getInt("film_id");  // Получаем id фильма из текущей строки
-                    // Преобразуем строку в объект Genre
-                    Genre genre = new GenreMapper("genre_id", "genre_name").mapRow(rs, rs.getRow());
-
-                    // все жанры сохраняем по порядку id (требование Postman-тестов) поэтому ArrayList
-                    // если нет ключа filmId, вставляем его
-                    filmGenresMap.computeIfAbsent(filmId, k -> new ArrayList<>())
-                                 .add(genre); // теперь ключ есть, добавить жанр
-                });
-
-        // Связывание фильмов с жанрами
-        films.forEach(film -> {
-            film.setGenres(filmGenresMap.getOrDefault(film.getId(), new ArrayList<>())); // вставляем из мапы, иначе new
-        });
-        return films;
+        String sql = "SELECT id FROM films WHERE id IN (:ids)";
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids);
+
+        return new HashSet<>(namedJdbcTemplate.queryForList(sql, params, Integer.class));
     }
 
     @Override
-    public List<Film> getPopularFilms(int count) {
-        String sql = " SELECT f.*, m.name AS mpa_name, COUNT(lk.user_id) AS likes_count " +
-                "FROM films f JOIN mpa m ON f.mpa_id = m.id " +
-                "LEFT JOIN likes lk ON f.id = lk.film_id " +
-                "GROUP BY f.id " +
-                "ORDER BY likes_count DESC, f.id " +
-                "LIMIT :count ";
+    public Collection<Film> getAllFilms() {
+        return namedJdbcTemplate.query(FILM_SELECT, filmWithGenresMapper);
+    }
+
+    // Потоковое чтение всех фильмов forward-only курсором: фильм отдается в consumer сразу после чтения строки,
+    // поэтому в памяти одновременно находится только один фильм.
+    @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        String sql = FILM_SELECT + "ORDER BY f.id";
+
+        namedJdbcTemplate.getJdbcOperations().query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(STREAM_FETCH_SIZE);
+                    return ps;
+                },
+                (RowCallbackHandler) rs -> consumer.accept(filmWithGenresMapper.mapRow(rs, rs.getRow())));
+    }
+
+    // страница фильмов с id больше afterId (keyset-пагинация по первичному ключу)
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        String sql = FILM_SELECT +
+                "WHERE f.id > :afterId " +
+                "ORDER BY f.id " +
+                "LIMIT :limit";
 
         MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("count", count);
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
 
-        List<Film> films = namedJdbcTemplate.query(sql, params, new FilmMapper());
+        return namedJdbcTemplate.query(sql, params, filmWithGenresMapper);
+    }
 
-        if (films.isEmpty()) {
+    // фильмы по списку id в том же порядке, что и ids (несуществующие id пропускаются)
+    @Override
+    public List<Film> findFilmsByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
             return Collections.emptyList();
         }
 
-        // Получаем ID всех найденных фильмов
-        List<Integer> filmIds = films.stream()
-                                     .map(Film::getId)
-                                     .toList();
-
-
-        // 2. Получаем все жанры для фильмов с использованием GenreMapper
-        String genresSql = "SELECT fg.film_id, " +
-                "g.id AS genre_id," +
-                "g.name AS genre_name " +
-                "FROM film_genres fg " +
-                "JOIN genres g ON fg.genre_id = g.id " +
-                "WHERE fg.film_id IN (:filmIds)";
-
-        MapSqlParameterSource paramsGenre = new MapSqlParameterSource()
-                .addValue("filmIds", filmIds);
-
-        Map<Integer, List<Genre>> filmGenresMap = new HashMap<>();
-
-        namedJdbcTemplate.query(genresSql,
-                paramsGenre,
-                rs -> {
-                    int filmId = rs.getInt("film_id");
-                    Genre genre = new GenreMapper("genre_id", "genre_name").mapRow(rs, rs.getRow());
-                    filmGenresMap.computeIfAbsent(filmId, k -> new ArrayList<>())
-                                 .add(genre);
-                });
-
-        // Устанавливаем жанры для каждого фильма (с сортировкой по id)
-        films.forEach(film -> {
-            List<Genre> genres = filmGenresMap.getOrDefault(film.getId(), Collections.emptyList());
-            genres.sort(Comparator.comparingInt(Genre::getId));
-            film.setGenres(genres);
-        });
-        return films;
-    }
+        String sql = FILM_SELECT + "WHERE f.id IN (:ids)";
 
-    // удаление из таблицы связи фильм-жанры
-    private void delFilmGenresRelations(Film film) {
-        String sql = "DELETE FROM film_genres WHERE film_id = :id";
         MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("id", film.getId());
+                .addValue("ids", ids);
 
-        namedJdbcTemplate.update(sql, params);
+        Map<Integer, Film> filmsById = new HashMap<>();
+        namedJdbcTemplate.query(sql, params, filmWithGenresMapper)
+                         .forEach(film -> filmsById.put(film.getId(), film));
+
+        return ids.stream()
+                  .map(filmsById::get)
+                  .filter(Objects::nonNull)
+                  .toList();
     }
 
-    // вставка в таблицу связи фильм-жанры
-    private void addFilmGenresRelations(Film film) {
-        // проверка на существование жанров уже сделана на этапе service
+    // маски жанров всех фильмов одним запросом по таблице films, без обращения к film_genres
+    @Override
+    public Map<Integer, Long> getGenreMasks() {
+        Map<Integer, Long> masks = new HashMap<>();
+        namedJdbcTemplate.getJdbcOperations().query("SELECT id, genre_mask FROM films",
+                (RowCallbackHandler) rs -> masks.put(rs.getInt("id"), rs.getLong("genre_mask")));
+        return masks;
+    }
 
-        List<Genre> genresList = film.getGenres();
+    private MapSqlParameterSource toFilmParams(Film film) {
+        return new MapSqlParameterSource()
+                .addValue("name", film.getName())
+                .addValue("description", film.getDescription())
+                .addValue("releaseDate", Date.valueOf(film.getReleaseDate()))
+                .addValue("duration", film.getDuration())
+                .addValue("mpaId", film.getMpa().getId())
+                .addValue("genreMask", GenreMask.of(film.getGenres()));
+    }
 
-        String sql = " INSERT INTO film_genres (film_id, genre_id) VALUES (:filmId, :genreId) ";
-        // Создаем массив параметров для batchUpdate
-        MapSqlParameterSource[] batchParams = genresList.stream()
-                                                        .map(genre -> new MapSqlParameterSource()
-                                                                .addValue("filmId", film.getId())
-                                                                .addValue("genreId", genre.getId()))
-                                                        .toArray(MapSqlParameterSource[]::new);
+    // блокировка строки фильма до конца транзакции и id его жанров; пустой Optional, если фильма нет
+    private Optional<Set<Integer>> lockFilmAndGetGenreIds(int filmId) {
+        String sql = "SELECT f.id, " +
+                "(SELECT LISTAGG(fg.genre_id, ',') FROM film_genres fg WHERE fg.film_id = f.id) AS genre_ids " +
+                "FROM films f WHERE f.id = :id FOR UPDATE";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", filmId);
 
-        // Пакетная вставка
-        namedJdbcTemplate.batchUpdate(sql, batchParams);
+        return namedJdbcTemplate.query(sql, params, (rs, rowNum) -> {
+                                    String genreIds = rs.getString("genre_ids");
+                                    Set<Integer> ids = new HashSet<>();
+                                    if (genreIds != null && !genreIds.isEmpty()) {
+                                        for (String genreId : genreIds.split(",")) {
+                                            ids.add(Integer.parseInt(genreId.trim()));
+                                        }
+                                    }
+                                    return ids;
+                                })
+                                .stream()
+                                .findFirst();
     }
 
+    // удаление из таблицы связи фильм-жанры указанных жанров фильма одним запросом
+    private void delFilmGenresRelations(int filmId, Set<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
 
-    // выгрузка из таблицы фильм-жанры всех записей без фильтров
-    private List<Genre> getFilmGenresRelations(Film film) {
-        String sql = "SELECT " +
-                "g.id AS genre_id," +
-                "g.name AS genre_name " +
-                "FROM genres g " +
-                "JOIN film_genres fg ON g.id = fg.genre_id " +
-                "WHERE fg.film_id = :filmId " +
-                "ORDER BY g.id ";
+        String sql = "DELETE FROM film_genres WHERE film_id = :filmId AND genre_id IN (:genreIds)";
         MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("filmId", film.getId());
+                .addValue("filmId", filmId)
+                .addValue("genreIds", genreIds);
 
-        return namedJdbcTemplate.query(sql, params, new GenreMapper("genre_id", "genre_name"));
+        namedJdbcTemplate.update(sql, params);
     }
 
-    // загрузка в фильм его жанров из таблицы связи (с id и именем жанра).
-    private Film loadGenresIntoFilm(Film film) {
+    // вставка в таблицу связи фильм-жанры всех жанров фильма
+    private void addFilmGenresRelations(Film film) {
+        // проверка на существование жанров уже сделана на этапе service
+        Set<Integer> genreIds = film.getGenres().stream()
+                                    .map(Genre::getId)
+                                    .collect(Collectors.toCollection(LinkedHashSet::new));
 
-        // вытащим все жанры фильма из таблицы film_genres и дополним названием из справочника жанров
-        List<Genre> genres = getFilmGenresRelations(film);
+        addFilmGenresRelations(film.getId(), genreIds);
+    }
 
+    // пакетная вставка в таблицу связи фильм-жанры
+    private void addFilmGenresRelations(int filmId, Set<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
 
-        // вставим в фильм список жанров
-        film.setGenres(genres);
+        String sql = " INSERT INTO film_genres (film_id, genre_id) VALUES (:filmId, :genreId) ";
+        // Создаем массив параметров для batchUpdate
+        MapSqlParameterSource[] batchParams = genreIds.stream()
+                                                      .map(genreId -> new MapSqlParameterSource()
+                                                              .addValue("filmId", filmId)
+                                                              .addValue("genreId", genreId))
+                                                      .toArray(MapSqlParameterSource[]::new);
 
-        return film;
+        // Пакетная вставка
+        namedJdbcTemplate.batchUpdate(sql, batchParams);
     }
+
 }
@@ -4,19 +4,33 @@ import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film addFilm(Film film);
 
+    List<Film> addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     Optional<Film> findFilmById(int id);
 
     boolean existsById(int filmId);
 
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
     Collection<Film> getAllFilms();
 
-    List<Film> getPopularFilms(int count);
+    List<Film> getFilmsPage(int afterId, int limit);
+
+    void streamAllFilms(Consumer<Film> consumer);
+
+    List<Film> findFilmsByIds(List<Integer> ids);
+
+    // id фильма -> битовая маска его жанров (см. GenreMask)
+    Map<Integer, Long> getGenreMasks();
 }
 
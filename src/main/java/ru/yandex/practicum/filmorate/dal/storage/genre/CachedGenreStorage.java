@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.dal.storage.genre;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Справочник жанров в памяти: загружается из БД один раз при старте (таблица genres меняется только миграциями,
+// которые выполняются раньше), все чтения (контроллер, проверка жанров фильма) идут без обращения к JDBC.
+@Slf4j
+@Primary
+@Component
+@DependsOn("schemaMigrator")
+public class CachedGenreStorage implements GenreStorage {
+
+    private final GenreDbStorage genreDbStorage;
+
+    // неизменяемый снимок справочника, при load() заменяется целиком
+    private volatile Map<Integer, Genre> genresById = Map.of();
+    private volatile List<Genre> allGenres = List.of();
+
+    public CachedGenreStorage(GenreDbStorage genreDbStorage) {
+        this.genreDbStorage = genreDbStorage;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Genre> genres = genreDbStorage.getAllGenres().stream()
+                                           .sorted(Comparator.comparingInt(Genre::getId))
+                                           .toList();
+
+        allGenres = genres;
+        genresById = genres.stream()
+                           .collect(Collectors.toUnmodifiableMap(Genre::getId, Function.identity()));
+        log.debug("Справочник жанров загружен: {} записей", genres.size());
+    }
+
+    @Override
+    public List<Genre> getAllGenres() {
+        return allGenres.stream()
+                        .map(CachedGenreStorage::copyOf)
+                        .toList();
+    }
+
+    @Override
+    public Optional<Genre> getGenreById(int id) {
+        return Optional.ofNullable(genresById.get(id))
+                       .map(CachedGenreStorage::copyOf);
+    }
+
+    @Override
+    public boolean existsById(int id) {
+        return genresById.containsKey(id);
+    }
+
+    // наружу отдаем копии, чтобы изменения объекта не попали в общий снимок
+    private static Genre copyOf(Genre genre) {
+        return new Genre(genre.getId(), genre.getName());
+    }
+}
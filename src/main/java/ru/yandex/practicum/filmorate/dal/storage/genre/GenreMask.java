@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.dal.storage.genre;
+
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.Collection;
+
+// Жанры фильма одним числом: жанру с id n соответствует бит 1L << n (id от 1 до 63).
+// Так же маску считает миграция V4 для уже сохраненных фильмов. Диапазон id закреплен ограничением
+// genres_id_mask_chk (V5), а сервисы сверяют жанры со справочником до записи, поэтому исключение в bit
+// означает нарушенный инвариант, а не ошибку клиента
+public final class GenreMask {
+    public static final int MAX_GENRE_ID = Long.SIZE - 1;
+
+    private GenreMask() {
+    }
+
+    public static long of(Collection<Genre> genres) {
+        long mask = 0;
+        if (genres != null) {
+            for (Genre genre : genres) {
+                mask |= bit(genre.getId());
+            }
+        }
+        return mask;
+    }
+
+    public static long ofIds(Collection<Integer> genreIds) {
+        long mask = 0;
+        for (int genreId : genreIds) {
+            mask |= bit(genreId);
+        }
+        return mask;
+    }
+
+    public static long bit(int genreId) {
+        if (genreId < 1 || genreId > MAX_GENRE_ID) {
+            throw new IllegalArgumentException("Жанр с ID " + genreId + " не помещается в маску жанров");
+        }
+        return 1L << genreId;
+    }
+}
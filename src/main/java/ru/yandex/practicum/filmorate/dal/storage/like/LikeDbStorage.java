@@ -1,12 +1,34 @@
 package ru.yandex.practicum.filmorate.dal.storage.like;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dal.storage.memory.InMemoryStore;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
 @Component
+@Profile("!" + InMemoryStore.PROFILE)
 public class LikeDbStorage implements LikeStorage {
 
+    // вставка лайка, только если его еще нет: 1 — вставлен, 0 — уже был
+    private static final String ADD_LIKE_IF_ABSENT_SQL = "MERGE INTO likes lk " +
+            "USING (VALUES (CAST(:filmId AS INT), CAST(:userId AS INT))) AS s (film_id, user_id) " +
+            "ON lk.film_id = s.film_id AND lk.user_id = s.user_id " +
+            "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (s.film_id, s.user_id)";
+
     private final NamedParameterJdbcTemplate namedJdbcTemplate;
 
     public LikeDbStorage(NamedParameterJdbcTemplate namedJdbcTemplate) {
@@ -26,25 +48,91 @@ public class LikeDbStorage implements LikeStorage {
         return Boolean.TRUE.equals(namedJdbcTemplate.queryForObject(sql, params, Boolean.class));
     }
 
+    // вставка только при отсутствии лайка одним запросом, без предварительной проверки.
+    // true — лайк добавлен, false — уже был
     @Override
-    public void addLike(int filmId, int userId) {
-        String sql = "INSERT INTO likes (film_id, user_id) VALUES (:filmId, :userId)";
-
+    public boolean addLike(int filmId, int userId) {
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("filmId", filmId)
                 .addValue("userId", userId);
 
-        namedJdbcTemplate.update(sql, params);
+        int inserted;
+        try {
+            inserted = namedJdbcTemplate.update(ADD_LIKE_IF_ABSENT_SQL, params);
+        } catch (DuplicateKeyException e) {
+            // параллельный запрос вставил тот же лайк между проверкой MERGE и вставкой — первичный ключ likes_pk
+            log.debug("Лайк пользователя {} фильму {} уже добавлен параллельно", userId, filmId);
+            return false;
+        }
+
+        return inserted > 0;
+    }
+
+    // пакетная идемпотентная вставка лайков: MERGE вставляет только отсутствующие пары (0 — лайк уже был);
+    // возвращает добавленные лайки
+    @Override
+    @Transactional
+    public List<FilmLike> addLikes(Collection<FilmLike> likes) {
+        if (likes.isEmpty()) {
+            return List.of();
+        }
+
+        List<FilmLike> likesList = List.copyOf(likes);
+        MapSqlParameterSource[] batchParams = likesList.stream()
+                                                       .map(like -> new MapSqlParameterSource()
+                                                               .addValue("filmId", like.getFilmId())
+                                                               .addValue("userId", like.getUserId()))
+                                                       .toArray(MapSqlParameterSource[]::new);
+
+        int[] inserted = namedJdbcTemplate.batchUpdate(ADD_LIKE_IF_ABSENT_SQL, batchParams);
+
+        List<FilmLike> addedLikes = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] > 0) {
+                addedLikes.add(likesList.get(i));
+            }
+        }
+        return addedLikes;
     }
 
+    // удаление лайка одним запросом: true — лайк был и удален, false — лайка не было
     @Override
-    public void removeLike(int filmId, int userId) {
+    public boolean removeLike(int filmId, int userId) {
         String sql = "DELETE FROM likes WHERE film_id =:filmId AND user_id = :userId";
 
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("filmId", filmId)
                 .addValue("userId", userId);
 
-        namedJdbcTemplate.update(sql, params);
+        int deleted = namedJdbcTemplate.update(sql, params);
+        return deleted > 0;
+    }
+
+    // число лайков каждого фильма по таблице likes (фильмы без лайков тоже попадают, с нулем)
+    @Override
+    public Map<Integer, Integer> getLikesCountByFilm() {
+        String sql = "SELECT f.id AS film_id, COUNT(lk.user_id) AS likes_count " +
+                "FROM films f LEFT JOIN likes lk ON f.id = lk.film_id " +
+                "GROUP BY f.id";
+
+        Map<Integer, Integer> likesCount = new HashMap<>();
+        namedJdbcTemplate.query(sql,
+                rs -> {
+                    likesCount.put(rs.getInt("film_id"), rs.getInt("likes_count"));
+                });
+        return likesCount;
+    }
+
+    // все лайки: id пользователя -> id лайкнутых им фильмов (для индекса рекомендаций в памяти)
+    @Override
+    public Map<Integer, Set<Integer>> getLikedFilmIdsByUser() {
+        String sql = "SELECT user_id, film_id FROM likes";
+
+        Map<Integer, Set<Integer>> likedFilmIds = new HashMap<>();
+        namedJdbcTemplate.query(sql,
+                rs -> {
+                    likedFilmIds.computeIfAbsent(rs.getInt("user_id"), id -> new HashSet<>()).add(rs.getInt("film_id"));
+                });
+        return likedFilmIds;
     }
 }
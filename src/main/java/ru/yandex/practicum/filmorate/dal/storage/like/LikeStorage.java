@@ -1,9 +1,22 @@
 package ru.yandex.practicum.filmorate.dal.storage.like;
 
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public interface LikeStorage {
     boolean isFilmLikedByUser(int filmId, int userId);
 
-    void addLike(int filmId, int userId);
+    boolean addLike(int filmId, int userId);
+
+    boolean removeLike(int filmId, int userId);
+
+    List<FilmLike> addLikes(Collection<FilmLike> likes);
+
+    Map<Integer, Integer> getLikesCountByFilm();
 
-    void removeLike(int filmId, int userId);
+    Map<Integer, Set<Integer>> getLikedFilmIdsByUser();
 }
@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreMask;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.dal.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Фильмы в памяти (профиль inmemory). Хранятся копии, наружу тоже отдаются копии,
+// поэтому изменение возвращенного объекта не меняет хранилище. Жанры — без повторов и по id, как в FilmDbStorage
+@Slf4j
+@Component
+@Profile(InMemoryStore.PROFILE)
+public class InMemoryFilmStorage implements FilmStorage {
+
+    private final InMemoryStore store;
+    private final InMemoryPersistence persistence;
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+
+    public InMemoryFilmStorage(InMemoryStore store, InMemoryPersistence persistence,
+                               GenreStorage genreStorage, MpaStorage mpaStorage) {
+        this.store = store;
+        this.persistence = persistence;
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        film.setId(store.filmIdSequence.incrementAndGet());
+        Film stored = normalizedCopy(film);
+
+        long seq;
+        synchronized (store.lockFor(film.getId())) {
+            // сначала журнал: если запись не принята, фильма не видно
+            seq = persistence.logged(() -> {
+                long filmSeq = persistence.filmSaved(stored);
+                store.films.put(film.getId(), stored);
+                return filmSeq;
+            });
+        }
+        persistence.awaitDurable(seq);
+        return film;
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        films.forEach(this::addFilm);
+        return films;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        Film stored = normalizedCopy(film);
+
+        long seq;
+        synchronized (store.lockFor(film.getId())) {
+            if (!store.films.containsKey(film.getId())) {
+                throw new NotFoundException("Фильм с ID " + film.getId() + " не найден");
+            }
+            seq = persistence.logged(() -> {
+                long filmSeq = persistence.filmSaved(stored);
+                store.films.put(film.getId(), stored);
+                return filmSeq;
+            });
+        }
+        persistence.awaitDurable(seq);
+        return film;
+    }
+
+    @Override
+    public Optional<Film> findFilmById(int id) {
+        return Optional.ofNullable(store.films.get(id)).map(this::copy);
+    }
+
+    @Override
+    public boolean existsById(int filmId) {
+        return store.films.containsKey(filmId);
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        Set<Integer> existingIds = new HashSet<>();
+        for (Integer id : ids) {
+            if (store.films.containsKey(id)) {
+                existingIds.add(id);
+            }
+        }
+        return existingIds;
+    }
+
+    @Override
+    public Collection<Film> getAllFilms() {
+        return store.films.values().stream().map(this::copy).toList();
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        return store.films.tailMap(afterId, false).values().stream()
+                          .limit(limit)
+                          .map(this::copy)
+                          .toList();
+    }
+
+    @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        store.films.values().forEach(film -> consumer.accept(copy(film)));
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Integer> ids) {
+        return ids.stream()
+                  .map(store.films::get)
+                  .filter(Objects::nonNull)
+                  .map(this::copy)
+                  .toList();
+    }
+
+    @Override
+    public Map<Integer, Long> getGenreMasks() {
+        Map<Integer, Long> masks = new HashMap<>();
+        store.films.forEach((id, film) -> masks.put(id, GenreMask.of(film.getGenres())));
+        return masks;
+    }
+
+    // копия для хранения: MPA и жанры с именами из справочников, жанры без повторов и по возрастанию id.
+    // Сервис проверяет MPA и жанры до записи, так что промах справочника — рассогласование данных, а не ввод клиента
+    private Film normalizedCopy(Film film) {
+        int mpaId = film.getMpa().getId();
+        Mpa mpa = mpaStorage.findMpaById(mpaId)
+                            .orElseThrow(() -> new NotFoundException("Рейтинг MPA с ID " + mpaId + " не найден"));
+
+        List<Genre> genres = film.getGenres() == null ? List.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .distinct()
+                .sorted()
+                .map(id -> genreStorage.getGenreById(id)
+                                      .orElseThrow(() -> new NotFoundException("Жанр с ID " + id + " не найден")))
+                .toList();
+
+        Film stored = copy(film);
+        stored.setMpa(mpa);
+        stored.setGenres(genres);
+        return stored;
+    }
+
+    private Film copy(Film film) {
+        return new Film(film.getId(),
+                film.getName(),
+                film.getDescription(),
+                film.getReleaseDate(),
+                film.getDuration(),
+                new Mpa(film.getMpa().getId(), film.getMpa().getName()),
+                film.getGenres() == null ? new ArrayList<>() : film.getGenres().stream()
+                        .map(genre -> new Genre(genre.getId(), genre.getName()))
+                        .collect(Collectors.toCollection(ArrayList::new)));
+    }
+}
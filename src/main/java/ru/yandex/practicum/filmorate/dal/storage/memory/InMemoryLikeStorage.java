@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Лайки в памяти (профиль inmemory): id лайкнувших пользователей фильма в IntSet.
+// Число лайков — размер множества, отдельный счетчик не нужен
+@Component
+@Profile(InMemoryStore.PROFILE)
+public class InMemoryLikeStorage implements LikeStorage {
+
+    private final InMemoryStore store;
+    private final InMemoryPersistence persistence;
+
+    public InMemoryLikeStorage(InMemoryStore store, InMemoryPersistence persistence) {
+        this.store = store;
+        this.persistence = persistence;
+    }
+
+    @Override
+    public boolean isFilmLikedByUser(int filmId, int userId) {
+        IntSet likes = store.likesByFilm.get(filmId);
+        return likes != null && likes.contains(userId);
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        return changeLike(filmId, userId, true);
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        return changeLike(filmId, userId, false);
+    }
+
+    @Override
+    public List<FilmLike> addLikes(Collection<FilmLike> likes) {
+        List<FilmLike> addedLikes = new ArrayList<>();
+        for (FilmLike like : likes) {
+            if (addLike(like.getFilmId(), like.getUserId())) {
+                addedLikes.add(like);
+            }
+        }
+        return addedLikes;
+    }
+
+    // запись в журнал и изменение под блокировкой фильма; в журнал попадают только реальные изменения.
+    // Сначала журнал: если запись не принята, изменение не применяется и никому не видно
+    private boolean changeLike(int filmId, int userId, boolean add) {
+        boolean changed;
+        long seq = 0;
+        synchronized (store.lockFor(filmId)) {
+            changed = isFilmLikedByUser(filmId, userId) != add;
+            if (changed) {
+                seq = persistence.logged(() -> {
+                    long likeSeq = persistence.likeChanged(filmId, userId, add);
+                    if (add) {
+                        store.likesOf(filmId).add(userId);
+                    } else {
+                        store.likesByFilm.get(filmId).remove(userId);
+                    }
+                    return likeSeq;
+                });
+            }
+        }
+        persistence.awaitDurable(seq);
+        return changed;
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikesCountByFilm() {
+        Map<Integer, Integer> likesCount = new HashMap<>();
+        store.films.keySet().forEach(filmId -> likesCount.put(filmId, store.likesCount(filmId)));
+        return likesCount;
+    }
+
+    @Override
+    public Map<Integer, Set<Integer>> getLikedFilmIdsByUser() {
+        Map<Integer, Set<Integer>> likedFilmIds = new HashMap<>();
+        store.likesByFilm.forEach((filmId, users) -> users.forEach(
+                userId -> likedFilmIds.computeIfAbsent(userId, id -> new HashSet<>()).add(filmId)));
+        return likedFilmIds;
+    }
+}
@@ -0,0 +1,433 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Долговечность in-memory хранилища (профиль inmemory, включается свойством filmorate.inmemory.data-dir).
+// Каждое изменение фильма, пользователя, лайка или дружбы пишется в журнал (WriteAheadLog) до ответа клиенту.
+// Периодически состояние целиком пишется в снимок snapshot.bin через отображаемый в память файл,
+// после чего старые сегменты журнала удаляются. При старте: снимок + сегменты журнала после него.
+//
+// Снимок "нечеткий": пишется параллельно с изменениями. Перед снимком журнал переходит на новый сегмент,
+// и все изменения, которые снимок мог не увидеть, есть в сегментах после него. Старые сегменты удаляются
+// после снимка, поэтому каждая их запись должна быть уже применена к store, когда снимок начинает чтение:
+// запись в журнал и ее применение выполняются под общей блокировкой снимка (logged), а переход
+// на новый сегмент — под монопольной. Без этого запись, принятая в старый сегмент, но примененная после
+// чтения снимком, пропала бы вместе с сегментом, хотя клиент уже получил подтверждение.
+// Записи журнала идемпотентны (положить фильм/пользователя целиком, добавить/убрать id из множества),
+// и для одного ключа порядок в журнале совпадает с порядком применения (см. InMemoryStore.lockFor),
+// поэтому повтор хвоста поверх снимка дает то же состояние.
+@Slf4j
+@Component
+@Profile(InMemoryStore.PROFILE)
+public class InMemoryPersistence {
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final int SNAPSHOT_MAGIC = 0x464D5331;  // "FMS1"
+    private static final int SNAPSHOT_REGION_SIZE = 16 * 1024 * 1024;
+
+    // типы записей журнала и элементов снимка
+    private static final byte END = 0;
+    private static final byte FILM_PUT = 1;
+    private static final byte USER_PUT = 2;
+    private static final byte FILM_LIKES = 3;
+    private static final byte USER_FRIENDS = 4;
+    private static final byte LIKE_ADD = 5;
+    private static final byte LIKE_REMOVE = 6;
+    private static final byte FRIEND_ADD = 7;
+    private static final byte FRIEND_REMOVE = 8;
+
+    private final InMemoryStore store;
+    private final Path directory;  // null — журнал и снимки выключены
+    private final long snapshotIntervalSeconds;
+
+    // общая — запись в журнал вместе с применением изменения, монопольная — переход журнала на новый сегмент
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    private volatile WriteAheadLog wal;
+    private ScheduledExecutorService snapshotExecutor;
+
+    public InMemoryPersistence(InMemoryStore store,
+                               @Value("${filmorate.inmemory.data-dir:}") String dataDir,
+                               @Value("${filmorate.inmemory.snapshot-interval-seconds:300}") long snapshotIntervalSeconds) {
+        this.store = store;
+        this.directory = dataDir == null || dataDir.isBlank() ? null : Path.of(dataDir);
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    // восстановление состояния и открытие журнала; выполняется до создания хранилищ (они зависят от этого бина)
+    @PostConstruct
+    public void start() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory);
+
+        long firstSegment = loadSnapshot();
+        List<Long> segments = WriteAheadLog.listSegments(directory).stream()
+                                           .filter(segment -> segment >= firstSegment)
+                                           .toList();
+        long lastSegment = segments.isEmpty() ? firstSegment - 1 : segments.get(segments.size() - 1);
+        int records = 0;
+        for (long segment : segments) {
+            records += WriteAheadLog.replay(WriteAheadLog.segmentPath(directory, segment),
+                    segment == lastSegment, this::applyRecord);
+        }
+        log.info("In-memory хранилище восстановлено из {}: фильмов {}, пользователей {}, записей журнала {}",
+                directory, store.films.size(), store.users.size(), records);
+
+        // новые записи — в новый сегмент, не дописываем за возможно отрезанным хвостом
+        wal = new WriteAheadLog(directory, lastSegment + 1);
+
+        if (snapshotIntervalSeconds > 0) {
+            snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "inmemory-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotExecutor.scheduleWithFixedDelay(this::snapshotQuietly,
+                    snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    // при остановке — итоговый снимок, чтобы следующий старт не повторял журнал
+    @PreDestroy
+    public void stop() throws IOException {
+        if (wal == null) {
+            return;
+        }
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdownNow();
+        }
+        snapshot();
+        wal.close();
+        wal = null;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    // Изменение хранилища: записи в журнал (filmSaved и др.) и их применение к store. Выполняется под общей
+    // блокировкой снимка, чтобы переход журнала на новый сегмент не разделил запись и ее применение.
+    // Вызывается под блокировкой ключа (InMemoryStore.lockFor / userKeysLock), блокировок ключей внутри
+    // не берет. Возвращает номер последней записи журнала для awaitDurable
+    long logged(Supplier<Long> change) {
+        snapshotLock.readLock().lock();
+        try {
+            return change.get();
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    // Запись изменений в журнал, только внутри logged. Возвращают номер записи;
+    // ждать диска — awaitDurable уже вне блокировки. 0 — журнал выключен
+
+    long filmSaved(Film film) {
+        return append(out -> {
+            out.writeByte(FILM_PUT);
+            writeFilm(out, film);
+        });
+    }
+
+    long userSaved(User user) {
+        return append(out -> {
+            out.writeByte(USER_PUT);
+            writeUser(out, user);
+        });
+    }
+
+    long likeChanged(int filmId, int userId, boolean added) {
+        return append(out -> {
+            out.writeByte(added ? LIKE_ADD : LIKE_REMOVE);
+            out.writeInt(filmId);
+            out.writeInt(userId);
+        });
+    }
+
+    long friendChanged(int userId, int friendId, boolean added) {
+        return append(out -> {
+            out.writeByte(added ? FRIEND_ADD : FRIEND_REMOVE);
+            out.writeInt(userId);
+            out.writeInt(friendId);
+        });
+    }
+
+    void awaitDurable(long seq) {
+        WriteAheadLog current = wal;
+        if (seq > 0 && current != null) {  // после stop() журнал уже сброшен на диск при закрытии
+            current.awaitDurable(seq);
+        }
+    }
+
+    // снимок состояния; одновременно выполняется не больше одного
+    public synchronized void snapshot() throws IOException {
+        if (wal == null) {
+            return;
+        }
+        // все записи старых сегментов к этому моменту применены: снимок их увидит
+        long firstSegment;
+        snapshotLock.writeLock().lock();
+        try {
+            firstSegment = wal.rotate();
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new MappedFileOutputStream(temporary, SNAPSHOT_REGION_SIZE)))) {
+            writeSnapshot(out, firstSegment);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // переименование должно дойти до диска раньше удаления сегментов: иначе после сбоя питания
+        // может остаться старый снимок без сегментов, которые его дополняют
+        WriteAheadLog.syncDirectory(directory);
+
+        // изменения до firstSegment уже в снимке
+        for (long segment : WriteAheadLog.listSegments(directory)) {
+            if (segment < firstSegment) {
+                Files.deleteIfExists(WriteAheadLog.segmentPath(directory, segment));
+            }
+        }
+        log.info("Снимок in-memory хранилища записан: фильмов {}, пользователей {}",
+                store.films.size(), store.users.size());
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось записать снимок in-memory хранилища", e);
+        }
+    }
+
+    private long append(RecordWriter writer) {
+        if (wal == null) {
+            return 0;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            writer.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return wal.append(bytes.toByteArray());
+    }
+
+    private void writeSnapshot(DataOutput out, long firstSegment) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeLong(firstSegment);
+        out.writeInt(store.filmIdSequence.get());
+        out.writeInt(store.userIdSequence.get());
+
+        for (Film film : store.films.values()) {
+            out.writeByte(FILM_PUT);
+            writeFilm(out, film);
+        }
+        for (Map.Entry<Integer, IntSet> likes : store.likesByFilm.entrySet()) {
+            out.writeByte(FILM_LIKES);
+            out.writeInt(likes.getKey());
+            writeIds(out, likes.getValue().toSortedArray());
+        }
+        for (User user : store.users.values()) {
+            out.writeByte(USER_PUT);
+            writeUser(out, user);
+        }
+        for (Map.Entry<Integer, IntSet> friends : store.friendsByUser.entrySet()) {
+            out.writeByte(USER_FRIENDS);
+            out.writeInt(friends.getKey());
+            writeIds(out, friends.getValue().toSortedArray());
+        }
+        out.writeByte(END);
+    }
+
+    // загружает снимок, если он есть; возвращает номер первого сегмента журнала, который нужно повторить
+    private long loadSnapshot() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new MappedFileInputStream(snapshot, SNAPSHOT_REGION_SIZE)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Файл " + snapshot + " не является снимком in-memory хранилища");
+            }
+            long firstSegment = in.readLong();
+            store.filmIdSequence.set(in.readInt());
+            store.userIdSequence.set(in.readInt());
+
+            byte type;
+            while ((type = in.readByte()) != END) {
+                switch (type) {
+                    case FILM_PUT, USER_PUT -> applyRecord(type, in);
+                    case FILM_LIKES -> {
+                        int filmId = in.readInt();
+                        for (int userId : readIds(in)) {
+                            store.likesOf(filmId).add(userId);
+                        }
+                    }
+                    case USER_FRIENDS -> {
+                        int userId = in.readInt();
+                        for (int friendId : readIds(in)) {
+                            store.friendsOf(userId).add(friendId);
+                        }
+                    }
+                    default -> throw new IOException("Неизвестный элемент снимка: " + type);
+                }
+            }
+            return firstSegment;
+        }
+    }
+
+    private void applyRecord(DataInput in) {
+        try {
+            applyRecord(in.readByte(), in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void applyRecord(byte type, DataInput in) throws IOException {
+        switch (type) {
+            case FILM_PUT -> {
+                Film film = readFilm(in);
+                store.films.put(film.getId(), film);
+                store.filmIdSequence.accumulateAndGet(film.getId(), Math::max);
+            }
+            case USER_PUT -> {
+                User user = readUser(in);
+                User previous = store.users.put(user.getId(), user);
+                if (previous != null) {
+                    store.userIdByEmail.remove(previous.getEmail(), previous.getId());
+                    store.userIdByLogin.remove(previous.getLogin(), previous.getId());
+                }
+                store.userIdByEmail.put(user.getEmail(), user.getId());
+                store.userIdByLogin.put(user.getLogin(), user.getId());
+                store.userIdSequence.accumulateAndGet(user.getId(), Math::max);
+            }
+            case LIKE_ADD -> store.likesOf(in.readInt()).add(in.readInt());
+            case LIKE_REMOVE -> store.likesOf(in.readInt()).remove(in.readInt());
+            case FRIEND_ADD -> store.friendsOf(in.readInt()).add(in.readInt());
+            case FRIEND_REMOVE -> store.friendsOf(in.readInt()).remove(in.readInt());
+            default -> throw new IOException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    private static void writeFilm(DataOutput out, Film film) throws IOException {
+        out.writeInt(film.getId());
+        writeString(out, film.getName());
+        writeString(out, film.getDescription());
+        out.writeLong(film.getReleaseDate() == null ? Long.MIN_VALUE : film.getReleaseDate().toEpochDay());
+        out.writeInt(film.getDuration() == null ? -1 : film.getDuration());
+        out.writeInt(film.getMpa().getId());
+        writeString(out, film.getMpa().getName());
+        out.writeInt(film.getGenres().size());
+        for (Genre genre : film.getGenres()) {
+            out.writeInt(genre.getId());
+            writeString(out, genre.getName());
+        }
+    }
+
+    private static Film readFilm(DataInput in) throws IOException {
+        int id = in.readInt();
+        String name = readString(in);
+        String description = readString(in);
+        long releaseDay = in.readLong();
+        int duration = in.readInt();
+        Mpa mpa = new Mpa(in.readInt(), readString(in));
+        int genreCount = in.readInt();
+        List<Genre> genres = new ArrayList<>(genreCount);
+        for (int i = 0; i < genreCount; i++) {
+            genres.add(new Genre(in.readInt(), readString(in)));
+        }
+        return new Film(id, name, description,
+                releaseDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(releaseDay),
+                duration < 0 ? null : duration,
+                mpa, genres);
+    }
+
+    private static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeInt(user.getId());
+        writeString(out, user.getEmail());
+        writeString(out, user.getLogin());
+        writeString(out, user.getName());
+        out.writeLong(user.getBirthday() == null ? Long.MIN_VALUE : user.getBirthday().toEpochDay());
+    }
+
+    private static User readUser(DataInput in) throws IOException {
+        int id = in.readInt();
+        String email = readString(in);
+        String login = readString(in);
+        String name = readString(in);
+        long birthday = in.readLong();
+        return new User(id, email, login, name,
+                birthday == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(birthday),
+                new HashSet<>());
+    }
+
+    private static void writeIds(DataOutput out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static int[] readIds(DataInput in) throws IOException {
+        int[] ids = new int[in.readInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = in.readInt();
+        }
+        return ids;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Общие данные in-memory хранилищ фильмов, пользователей и лайков (профиль inmemory).
+// Фильмы и пользователи лежат в упорядоченных по id конкурентных картах (страницы — tailMap),
+// друзья и лайки — в IntSet по id владельца, id выдаются атомарными счетчиками.
+@Component
+@Profile(InMemoryStore.PROFILE)
+public class InMemoryStore {
+    public static final String PROFILE = "inmemory";
+
+    final AtomicInteger filmIdSequence = new AtomicInteger();
+    final AtomicInteger userIdSequence = new AtomicInteger();
+
+    final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+    final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();  // без друзей
+
+    // уникальные ключи пользователей: email/логин -> id
+    final ConcurrentMap<String, Integer> userIdByEmail = new ConcurrentHashMap<>();
+    final ConcurrentMap<String, Integer> userIdByLogin = new ConcurrentHashMap<>();
+    // изменения email/логина идут под этой блокировкой, чтобы проверка и резервирование двух ключей были атомарны
+    final Object userKeysLock = new Object();
+
+    // блокировки по id (фильма для фильма и его лайков, пользователя — для его друзей): изменение и его запись
+    // в журнал делаются под одной блокировкой, чтобы для одного ключа порядок в журнале совпадал с порядком изменений
+    private static final int LOCK_STRIPES = 64;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    final ConcurrentMap<Integer, IntSet> friendsByUser = new ConcurrentHashMap<>();  // id пользователя -> id друзей
+    final ConcurrentMap<Integer, IntSet> likesByFilm = new ConcurrentHashMap<>();    // id фильма -> id лайкнувших
+
+    public InMemoryStore() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    Object lockFor(int id) {
+        return locks[Math.floorMod(id, LOCK_STRIPES)];
+    }
+
+    IntSet friendsOf(int userId) {
+        return friendsByUser.computeIfAbsent(userId, id -> new IntSet());
+    }
+
+    IntSet likesOf(int filmId) {
+        return likesByFilm.computeIfAbsent(filmId, id -> new IntSet());
+    }
+
+    int likesCount(int filmId) {
+        IntSet likes = likesByFilm.get(filmId);
+        return likes == null ? 0 : likes.size();
+    }
+}
@@ -0,0 +1,286 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptionDuplicate;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Пользователи и друзья в памяти (профиль inmemory). Уникальность email и логина держат карты
+// email/логин -> id, друзья пользователя — IntSet. Поведение повторяет UserDbStorage, включая ошибки
+@Slf4j
+@Component
+@Profile(InMemoryStore.PROFILE)
+public class InMemoryUserStorage implements UserStorage {
+
+    private final InMemoryStore store;
+    private final InMemoryPersistence persistence;
+
+    public InMemoryUserStorage(InMemoryStore store, InMemoryPersistence persistence) {
+        this.store = store;
+        this.persistence = persistence;
+    }
+
+    @Override
+    public User addUser(User user) {
+        long seq;
+        synchronized (store.userKeysLock) {
+            checkUniqueKeys(user, null);
+            user.setId(store.userIdSequence.incrementAndGet());
+            seq = putUser(user);
+        }
+        persistence.awaitDurable(seq);
+        return user;
+    }
+
+    // пакет добавляется целиком или не добавляется: все ключи проверяются до первой вставки
+    @Override
+    public List<User> addUsers(List<User> users) {
+        long seq = 0;
+        synchronized (store.userKeysLock) {
+            Set<String> batchEmails = new HashSet<>();
+            Set<String> batchLogins = new HashSet<>();
+            for (User user : users) {
+                checkUniqueKeys(user, null);
+                if (!batchEmails.add(user.getEmail()) || !batchLogins.add(user.getLogin())) {
+                    throw new ValidationExceptionDuplicate("Email или логин из пакета уже заняты другим пользователем");
+                }
+            }
+            for (User user : users) {
+                user.setId(store.userIdSequence.incrementAndGet());
+                seq = putUser(user);
+            }
+        }
+        persistence.awaitDurable(seq);  // одно ожидание диска на весь пакет
+        return users;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        long seq;
+        synchronized (store.userKeysLock) {
+            User stored = store.users.get(user.getId());
+            if (stored == null) {
+                throw new NotFoundException("Пользователь с ID " + user.getId() + " не найден");
+            }
+            checkUniqueKeys(user, user.getId());
+
+            seq = putUser(user, stored);
+        }
+        // полный update: в множестве друзей меняется только разница со старым набором
+        synchronized (store.lockFor(user.getId())) {
+            seq = Math.max(seq, persistence.logged(() -> {
+                long friendsSeq = 0;
+                IntSet friends = store.friendsOf(user.getId());
+                for (int friendId : friends.toSortedArray()) {
+                    if (!user.getFriends().contains(friendId)) {
+                        friendsSeq = persistence.friendChanged(user.getId(), friendId, false);
+                        friends.remove(friendId);
+                    }
+                }
+                for (int friendId : user.getFriends()) {
+                    if (!friends.contains(friendId)) {
+                        friendsSeq = persistence.friendChanged(user.getId(), friendId, true);
+                        friends.add(friendId);
+                    }
+                }
+                return friendsSeq;
+            }));
+        }
+        persistence.awaitDurable(seq);
+        return user;
+    }
+
+    @Override
+    public Optional<User> findUserById(int id) {
+        return Optional.ofNullable(store.users.get(id))
+                       .map(this::copy)
+                       .map(user -> {
+                           user.setFriends(toIdSet(friendIds(id)));
+                           return user;
+                       });
+    }
+
+    @Override
+    public boolean existsById(int userId) {
+        return store.users.containsKey(userId);
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                  .filter(store.users::containsKey)
+                  .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    @Override
+    public Collection<User> getAllUsers() {
+        return store.users.values().stream().map(this::copy).toList();
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        return store.users.tailMap(afterId, false).values().stream()
+                          .limit(limit)
+                          .map(this::copy)
+                          .toList();
+    }
+
+    @Override
+    public List<User> findUsersByIds(List<Integer> ids) {
+        return getUsersByIds(ids.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Override
+    public boolean addFriend(int userId, int friendId) {
+        validateUsersExist(userId, friendId);
+        return changeFriend(userId, friendId, true);
+    }
+
+    @Override
+    public boolean removeFriend(int userId, int friendId) {
+        validateUsersExist(userId, friendId);
+        return changeFriend(userId, friendId, false);
+    }
+
+    // друзья пользователя (без свойства friends, как в UserDbStorage)
+    @Override
+    public List<User> getFriends(int userId) {
+        return getUsersByIds(friendIds(userId));
+    }
+
+    @Override
+    public Map<Integer, Set<Integer>> getAllFriendsIds() {
+        Map<Integer, Set<Integer>> friendsIds = new HashMap<>();
+        store.friendsByUser.forEach((userId, friends) -> {
+            if (!friends.isEmpty()) {
+                friendsIds.put(userId, toIdSet(friends.toSortedArray()));
+            }
+        });
+        return friendsIds;
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        return emails.stream()
+                     .filter(store.userIdByEmail::containsKey)
+                     .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    @Override
+    public Set<String> findExistingLogins(Collection<String> logins) {
+        return logins.stream()
+                     .filter(store.userIdByLogin::containsKey)
+                     .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    // вызывается под userKeysLock
+    private boolean existsByLogin(String login, Integer excludeUserId) {
+        Integer ownerId = store.userIdByLogin.get(login);
+        return ownerId != null && !ownerId.equals(excludeUserId);
+    }
+
+    private boolean existsByEmail(String email, Integer excludeUserId) {
+        Integer ownerId = store.userIdByEmail.get(email);
+        return ownerId != null && !ownerId.equals(excludeUserId);
+    }
+
+    private void checkUniqueKeys(User user, Integer excludeUserId) {
+        if (existsByEmail(user.getEmail(), excludeUserId)) {
+            log.error("Email {} уже используется другим пользователем", user.getEmail());
+            throw new ValidationExceptionDuplicate("Email " + user.getEmail() + " уже занят другим пользователем");
+        }
+        if (existsByLogin(user.getLogin(), excludeUserId)) {
+            log.error("Логин {} уже используется другим пользователем", user.getLogin());
+            throw new ValidationExceptionDuplicate("Логин " + user.getLogin() + " уже занят другим пользователем");
+        }
+    }
+
+    private long putUser(User user) {
+        return putUser(user, null);
+    }
+
+    // вызывается под userKeysLock; пользователь хранится без друзей. Сначала запись в журнал: если она не принята,
+    // ни пользователь, ни его email и логин в индексах не меняются. Возвращает номер записи журнала
+    private long putUser(User user, User previous) {
+        User stored = copy(user);
+        return persistence.logged(() -> {
+            long seq = persistence.userSaved(stored);
+            if (previous != null) {
+                store.userIdByEmail.remove(previous.getEmail());
+                store.userIdByLogin.remove(previous.getLogin());
+            }
+            store.users.put(stored.getId(), stored);
+            store.userIdByEmail.put(stored.getEmail(), stored.getId());
+            store.userIdByLogin.put(stored.getLogin(), stored.getId());
+            return seq;
+        });
+    }
+
+    // запись в журнал и изменение под блокировкой пользователя; в журнал попадают только реальные изменения.
+    // Сначала журнал: если запись не принята, изменение не применяется и никому не видно
+    private boolean changeFriend(int userId, int friendId, boolean add) {
+        boolean changed;
+        long seq = 0;
+        synchronized (store.lockFor(userId)) {
+            IntSet friends = store.friendsByUser.get(userId);
+            changed = (friends != null && friends.contains(friendId)) != add;
+            if (changed) {
+                seq = persistence.logged(() -> {
+                    long friendSeq = persistence.friendChanged(userId, friendId, add);
+                    if (add) {
+                        store.friendsOf(userId).add(friendId);
+                    } else {
+                        friends.remove(friendId);
+                    }
+                    return friendSeq;
+                });
+            }
+        }
+        persistence.awaitDurable(seq);
+        return changed;
+    }
+
+    private void validateUsersExist(int userId, int otherId) {
+        for (int id : List.of(userId, otherId)) {
+            if (!store.users.containsKey(id)) {
+                throw new NotFoundException("Пользователь с ID " + id + " не найден");
+            }
+        }
+    }
+
+    private int[] friendIds(int userId) {
+        IntSet friends = store.friendsByUser.get(userId);
+        return friends == null ? new int[0] : friends.toSortedArray();
+    }
+
+    private List<User> getUsersByIds(int[] ids) {
+        return Arrays.stream(ids)
+                     .mapToObj(store.users::get)
+                     .filter(Objects::nonNull)
+                     .map(this::copy)
+                     .toList();
+    }
+
+    private static Set<Integer> toIdSet(int[] ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private User copy(User user) {
+        return new User(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(),
+                new HashSet<>());
+    }
+}
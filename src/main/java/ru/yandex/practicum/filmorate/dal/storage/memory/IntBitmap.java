@@ -0,0 +1,360 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Сжатое множество неотрицательных int (id пользователей и фильмов) в стиле Roaring bitmap: значения делятся
+// по старшим 16 битам на блоки, блок до 4096 значений хранится отсортированным массивом char[], более плотный —
+// битовой картой long[1024]. Пересечение идет только по общим блокам: массив с массивом — слиянием, массив
+// с картой — проверкой битов, карта с картой — AND по словам. Единая реализация множества id для индексов
+// в памяти и хранилища профиля inmemory. Не потокобезопасен: доступ синхронизирует владелец (индекс или IntSet)
+public final class IntBitmap {
+    private static final int ARRAY_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024;  // 65536 бит
+
+    private char[] keys = new char[0];  // старшие 16 бит значений блоков, по возрастанию
+    private Container[] containers = new Container[0];
+    private int blocks;
+    private int cardinality;
+
+    public boolean add(int value) {
+        char key = highBits(value);
+        int index = findBlock(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertBlock(index, key, new ArrayContainer());
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add(lowBits(value));
+        if (containers[index].cardinality() == before) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int index = findBlock(highBits(value));
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.remove(lowBits(value));
+        int after = containers[index].cardinality();
+        if (after == 0) {
+            removeBlock(index);
+        }
+        if (after == before) {
+            return false;
+        }
+        cardinality--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        int index = findBlock(highBits(value));
+        return index >= 0 && containers[index].contains(lowBits(value));
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    // значения по возрастанию
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int count = 0;
+        for (int i = 0; i < blocks; i++) {
+            count = containers[i].copyTo(keys[i] << 16, values, count);
+        }
+        return values;
+    }
+
+    // обход значений по возрастанию без копирования
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < blocks; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    // пересечение с другим множеством, значения по возрастанию
+    public int[] and(IntBitmap other) {
+        int[] values = new int[Math.min(cardinality, other.cardinality)];
+        int count = and(other, values);
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    // размер пересечения без создания массива (сходство по числу общих элементов)
+    public int andCardinality(IntBitmap other) {
+        return and(other, null);
+    }
+
+    // out == null — только подсчет
+    private int and(IntBitmap other, int[] out) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < blocks && j < other.blocks) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count = and(containers[i], other.containers[j], keys[i] << 16, out, count);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static int and(Container first, Container second, int high, int[] out, int count) {
+        if (first instanceof ArrayContainer a && second instanceof ArrayContainer b) {
+            int i = 0;
+            int j = 0;
+            while (i < a.size && j < b.size) {
+                if (a.values[i] < b.values[j]) {
+                    i++;
+                } else if (a.values[i] > b.values[j]) {
+                    j++;
+                } else {
+                    count = put(out, count, high | a.values[i]);
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+        if (first instanceof ArrayContainer a) {
+            for (int i = 0; i < a.size; i++) {
+                if (second.contains(a.values[i])) {
+                    count = put(out, count, high | a.values[i]);
+                }
+            }
+            return count;
+        }
+        if (second instanceof ArrayContainer) {
+            return and(second, first, high, out, count);
+        }
+        long[] a = ((BitmapContainer) first).words;
+        long[] b = ((BitmapContainer) second).words;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = a[w] & b[w];
+            if (out == null) {
+                count += Long.bitCount(word);
+                continue;
+            }
+            while (word != 0) {
+                count = put(out, count, high | (w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return count;
+    }
+
+    private static int put(int[] out, int count, int value) {
+        if (out != null) {
+            out[count] = value;
+        }
+        return count + 1;
+    }
+
+    private int findBlock(char key) {
+        return Arrays.binarySearch(keys, 0, blocks, key);
+    }
+
+    private void insertBlock(int index, char key, Container container) {
+        if (blocks == keys.length) {
+            int capacity = Math.max(4, blocks * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, blocks - index);
+        System.arraycopy(containers, index, containers, index + 1, blocks - index);
+        keys[index] = key;
+        containers[index] = container;
+        blocks++;
+    }
+
+    private void removeBlock(int index) {
+        System.arraycopy(keys, index + 1, keys, index, blocks - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, blocks - index - 1);
+        blocks--;
+        containers[blocks] = null;
+    }
+
+    private static char highBits(int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char lowBits(int value) {
+        return (char) value;
+    }
+
+    // блок из 65536 возможных значений; add/remove возвращают блок, которым нужно заменить текущий
+    private abstract static class Container {
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract int copyTo(int high, int[] out, int count);
+
+        abstract void forEach(int high, IntConsumer action);
+    }
+
+    // разреженный блок: отсортированный массив младших 16 бит
+    private static final class ArrayContainer extends Container {
+        private char[] values = new char[4];
+        private int size;
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (size == ARRAY_MAX_SIZE) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX_SIZE, size * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        int copyTo(int high, int[] out, int count) {
+            for (int i = 0; i < size; i++) {
+                out[count++] = high | values[i];
+            }
+            return count;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    // плотный блок: по биту на каждое из 65536 значений
+    private static final class BitmapContainer extends Container {
+        private final long[] words = new long[BITMAP_WORDS];
+        private int cardinality;
+
+        @Override
+        Container add(char value) {
+            long mask = 1L << value;
+            if ((words[value >>> 6] & mask) == 0) {
+                words[value >>> 6] |= mask;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long mask = 1L << value;
+            if ((words[value >>> 6] & mask) != 0) {
+                words[value >>> 6] &= ~mask;
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX_SIZE ? toArrayContainer() : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int copyTo(int high, int[] out, int count) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    out[count++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private ArrayContainer toArrayContainer() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[cardinality];
+            copyLowBits(array.values);
+            array.size = cardinality;
+            return array;
+        }
+
+        private void copyLowBits(char[] out) {
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    out[count++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+}
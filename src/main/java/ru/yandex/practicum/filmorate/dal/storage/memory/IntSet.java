@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+// Потокобезопасное множество положительных int (id пользователей и фильмов) для хранилища в памяти:
+// значения лежат в IntBitmap, методы синхронизированы на самом множестве.
+// Одно множество — друзья одного пользователя или лайки одного фильма.
+public final class IntSet {
+    private final IntBitmap values = new IntBitmap();
+
+    public IntSet() {
+    }
+
+    public IntSet(Collection<Integer> values) {
+        values.forEach(this::add);
+    }
+
+    public synchronized boolean add(int value) {
+        checkValue(value);
+        return values.add(value);
+    }
+
+    public synchronized boolean remove(int value) {
+        return values.remove(value);
+    }
+
+    public synchronized boolean contains(int value) {
+        return values.contains(value);
+    }
+
+    public synchronized int size() {
+        return values.cardinality();
+    }
+
+    public synchronized boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    // снимок элементов в порядке возрастания
+    public synchronized int[] toSortedArray() {
+        return values.toArray();
+    }
+
+    // обход снимка: действие выполняется вне блокировки множества
+    public void forEach(IntConsumer action) {
+        for (int value : toSortedArray()) {
+            action.accept(value);
+        }
+    }
+
+    // пересечение с другим множеством: снимок меньшего проверяется по большему,
+    // одновременно держится только одна блокировка
+    public int[] intersect(IntSet other) {
+        IntSet smaller = size() <= other.size() ? this : other;
+        IntSet larger = smaller == this ? other : this;
+
+        int[] candidates = smaller.toSortedArray();
+        int count = 0;
+        for (int value : candidates) {
+            if (larger.contains(value)) {
+                candidates[count++] = value;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private static void checkValue(int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Id должен быть положительным: " + value);
+        }
+    }
+}
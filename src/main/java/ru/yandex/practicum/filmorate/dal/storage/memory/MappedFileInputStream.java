@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Последовательное чтение файла через отображение в память окнами по regionSize байт
+final class MappedFileInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long size;
+    private final int regionSize;
+
+    private MappedByteBuffer region;
+    private long position;
+
+    MappedFileInputStream(Path path, int regionSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position >= size) {
+            return -1;
+        }
+        ensureRegion();
+        position++;
+        return region.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+        ensureRegion();
+        int count = Math.min(length, region.remaining());
+        region.get(bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        region = null;
+        channel.close();
+    }
+
+    private void ensureRegion() throws IOException {
+        if (region != null && region.hasRemaining()) {
+            return;
+        }
+        region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position));
+    }
+}
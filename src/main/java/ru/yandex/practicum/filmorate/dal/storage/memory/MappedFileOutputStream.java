@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Последовательная запись в файл через отображение в память: файл отображается окнами по regionSize байт,
+// заполненное окно сбрасывается на диск и отображается следующее. При закрытии файл усекается до записанного
+final class MappedFileOutputStream extends OutputStream {
+    private final FileChannel channel;
+    private final int regionSize;
+
+    private MappedByteBuffer region;
+    private long position;
+
+    MappedFileOutputStream(Path path, int regionSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureRegion();
+        region.put((byte) b);
+        position++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            ensureRegion();
+            int count = Math.min(length, region.remaining());
+            region.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+            position += count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (region != null) {
+            region.force();
+            region = null;
+        }
+        channel.truncate(position);
+        channel.force(true);
+        channel.close();
+    }
+
+    private void ensureRegion() throws IOException {
+        if (region != null && region.hasRemaining()) {
+            return;
+        }
+        if (region != null) {
+            region.force();
+        }
+        region = channel.map(FileChannel.MapMode.READ_WRITE, position, regionSize);
+    }
+}
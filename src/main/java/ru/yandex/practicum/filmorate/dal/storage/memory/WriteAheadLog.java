@@ -0,0 +1,258 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Журнал изменений (write-ahead log) in-memory хранилища: файлы-сегменты wal-<номер>.log в каталоге данных.
+// Запись: [длина][CRC32][данные]. Групповой коммит: записи копятся в буфере, первый ожидающий поток
+// становится "лидером" и одним write + force сбрасывает на диск все накопленное, остальные ждут его.
+// Пока лидер ждет диск, новые записи копятся для следующего сброса.
+@Slf4j
+final class WriteAheadLog implements Closeable {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("wal-(\\d+)\\.log");
+    // на Windows каталог нельзя открыть как файл; NTFS сама журналирует создание и переименование файлов
+    private static final boolean DIRECTORY_SYNC_SUPPORTED =
+            !System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private FileChannel channel;
+    private long segment;
+    private long appendedSeq;   // номер последней принятой записи
+    private long durableSeq;    // номер последней записи, сброшенной на диск
+    private boolean flushing;
+    private IOException failure;
+
+    WriteAheadLog(Path directory, long segment) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+    }
+
+    // добавить запись в буфер; возвращает номер для awaitDurable
+    long append(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        lock.lock();
+        try {
+            checkFailure();
+            DataOutputStream out = new DataOutputStream(pending);
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+            return ++appendedSeq;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // запись в ByteArrayOutputStream не бросает IOException
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // дождаться, пока запись с номером seq (и все до нее) окажется на диске
+    void awaitDurable(long seq) {
+        lock.lock();
+        try {
+            while (durableSeq < seq) {
+                checkFailure();
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                byte[] batch = pending.toByteArray();
+                pending = new ByteArrayOutputStream();
+                long batchSeq = appendedSeq;
+                FileChannel target = channel;
+
+                IOException error = null;
+                lock.unlock();
+                try {
+                    writeFully(target, batch);
+                    target.force(false);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                }
+
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSeq = batchSeq;
+                }
+                flushed.signalAll();
+            }
+            checkFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // сбросить накопленное в текущий сегмент и начать новый; возвращает номер нового сегмента.
+    // Все записи, принятые после возврата, попадут в новый сегмент
+    long rotate() throws IOException {
+        lock.lock();
+        try {
+            flushAndCloseSegment();
+            segment++;
+            channel = openSegment(segment);
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            flushAndCloseSegment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("wal-%020d.log", segment));
+    }
+
+    // номера сегментов в каталоге по возрастанию
+    static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    // Чтение всех целых записей сегмента, возвращает их число. Оборванный хвост (сбой во время записи) возможен
+    // только у последнего сегмента: перед открытием следующего сегмента предыдущий сбрасывается на диск целиком.
+    // У последнего сегмента хвост отрезается — файл усекается до последней целой записи. Повреждение
+    // в более раннем сегменте — это порча данных, а не сбой записи: повтор останавливается с ошибкой, иначе
+    // более поздние сегменты легли бы поверх пропавших изменений
+    static int replay(Path file, boolean lastSegment, Consumer<DataInput> consumer) throws IOException {
+        int records = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int expectedCrc = in.readInt();
+                    if (length < 0) {
+                        break;
+                    }
+                    payload = in.readNBytes(length);
+                    if (payload.length < length) {
+                        break;
+                    }
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != expectedCrc) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                consumer.accept(new DataInputStream(new ByteArrayInputStream(payload)));
+                validLength += Integer.BYTES * 2 + payload.length;
+                records++;
+            }
+        }
+
+        if (Files.size(file) > validLength) {
+            if (!lastSegment) {
+                throw new IOException("Журнал " + file.getFileName() + " поврежден после " + validLength
+                        + " байт, хотя это не последний сегмент; восстановление остановлено");
+            }
+            log.warn("Журнал {}: отрезан поврежденный хвост после {} байт", file.getFileName(), validLength);
+            try (FileChannel truncated = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncated.truncate(validLength);
+                truncated.force(true);
+            }
+        }
+        return records;
+    }
+
+    // вызывается под lock
+    private void flushAndCloseSegment() throws IOException {
+        while (flushing) {
+            flushed.awaitUninterruptibly();
+        }
+        checkFailure();
+        writeFully(channel, pending.toByteArray());
+        pending = new ByteArrayOutputStream();
+        channel.force(false);
+        durableSeq = appendedSeq;
+        flushed.signalAll();
+        channel.close();
+    }
+
+    // новый сегмент; запись о файле в каталоге сбрасывается на диск, чтобы после сбоя питания
+    // сегмент с подтвержденными записями не пропал целиком
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        syncDirectory(directory);
+        return segmentChannel;
+    }
+
+    // сброс на диск изменений самого каталога (созданные, переименованные и удаленные файлы)
+    static void syncDirectory(Path directory) throws IOException {
+        if (!DIRECTORY_SYNC_SUPPORTED) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал изменений недоступен после ошибки записи", failure);
+        }
+    }
+
+    private static void writeFully(FileChannel target, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.dal.storage.mpa;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Справочник рейтингов MPA в памяти: загружается из БД один раз при старте (таблица mpa меняется только миграциями)
+@Slf4j
+@Primary
+@Component
+@DependsOn("schemaMigrator")
+public class CachedMpaStorage implements MpaStorage {
+
+    private final MpaDbStorage mpaDbStorage;
+
+    // неизменяемый снимок справочника, при load() заменяется целиком
+    private volatile Map<Integer, Mpa> mpaById = Map.of();
+    private volatile List<Mpa> allMpa = List.of();
+
+    public CachedMpaStorage(MpaDbStorage mpaDbStorage) {
+        this.mpaDbStorage = mpaDbStorage;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Mpa> mpaList = mpaDbStorage.getAllMpa().stream()
+                                        .sorted(Comparator.comparingInt(Mpa::getId))
+                                        .toList();
+
+        allMpa = mpaList;
+        mpaById = mpaList.stream()
+                         .collect(Collectors.toUnmodifiableMap(Mpa::getId, Function.identity()));
+        log.debug("Справочник MPA загружен: {} записей", mpaList.size());
+    }
+
+    @Override
+    public List<Mpa> getAllMpa() {
+        return allMpa.stream()
+                     .map(CachedMpaStorage::copyOf)
+                     .toList();
+    }
+
+    @Override
+    public Optional<Mpa> findMpaById(int id) {
+        return Optional.ofNullable(mpaById.get(id))
+                       .map(CachedMpaStorage::copyOf);
+    }
+
+    @Override
+    public boolean existsById(int id) {
+        return mpaById.containsKey(id);
+    }
+
+    // наружу отдаем копии, чтобы изменения объекта не попали в общий снимок
+    private static Mpa copyOf(Mpa mpa) {
+        return new Mpa(mpa.getId(), mpa.getName());
+    }
+}
@@ -2,18 +2,27 @@ package ru.yandex.practicum.filmorate.dal.storage.user;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dal.mappers.UserMapper;
+import ru.yandex.practicum.filmorate.dal.storage.memory.InMemoryStore;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptionDuplicate;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.Date;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -21,8 +30,19 @@ import java.util.Set;
 @Slf4j
 @Component
 @Qualifier("userDbStorage")
+@Profile("!" + InMemoryStore.PROFILE)
 public class UserDbStorage implements UserStorage {
 
+    // имена ограничений уникальности из schema.sql
+    private static final String EMAIL_UNIQUE_CONSTRAINT = "USERS_EMAIL_UQ";
+    private static final String LOGIN_UNIQUE_CONSTRAINT = "USERS_LOGIN_UQ";
+
+    // вставка пары в друзья, только если ее еще нет: 1 — вставлена, 0 — уже была
+    private static final String ADD_FRIEND_IF_ABSENT_SQL = "MERGE INTO friends fr " +
+            "USING (VALUES (CAST(:userId AS INT), CAST(:friendId AS INT))) AS s (user_id, friend_id) " +
+            "ON fr.user_id = s.user_id AND fr.friend_id = s.friend_id " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, friend_id) VALUES (s.user_id, s.friend_id)";
+
     private final NamedParameterJdbcTemplate namedJdbcTemplate;
 
     public UserDbStorage(NamedParameterJdbcTemplate namedJdbcTemplate) {
@@ -43,18 +63,62 @@ public class UserDbStorage implements UserStorage {
                 .addValue("name", user.getName())
                 .addValue("birthday", Date.valueOf(user.getBirthday()));
 
-        namedJdbcTemplate.update(
-                sql,
-                params,
-                keyHolder,
-                new String[]{"id"} // Имя колонки для возврата сгенерированного ID
-        );
+        try {
+            namedJdbcTemplate.update(
+                    sql,
+                    params,
+                    keyHolder,
+                    new String[]{"id"} // Имя колонки для возврата сгенерированного ID
+            );
+        } catch (DuplicateKeyException e) {
+            throw toValidationExceptionDuplicate(e, user);
+        }
 
         user.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
         return user;
     }
 
+    // пакетная вставка пользователей (без друзей) одним batch-запросом в одной транзакции
+    @Override
+    @Transactional
+    public List<User> addUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+
+        String sql = "INSERT INTO users (email, login, name, birthday) " +
+                "VALUES (:email, :login, :name, :birthday)";
+
+        MapSqlParameterSource[] batchParams = users.stream()
+                                                   .map(user -> new MapSqlParameterSource()
+                                                           .addValue("email", user.getEmail())
+                                                           .addValue("login", user.getLogin())
+                                                           .addValue("name", user.getName())
+                                                           .addValue("birthday", user.getBirthday() == null
+                                                                   ? null : Date.valueOf(user.getBirthday())))
+                                                   .toArray(MapSqlParameterSource[]::new);
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            namedJdbcTemplate.batchUpdate(sql, batchParams, keyHolder, new String[]{"id"});
+        } catch (DuplicateKeyException e) {
+            // email или логин заняли между проверкой и вставкой — пакет откатывается целиком
+            log.warn("Конфликт уникальности при пакетной вставке пользователей: {}", e.getMessage());
+            throw new ValidationExceptionDuplicate("Email или логин из пакета уже заняты другим пользователем");
+        }
+
+        // ключи возвращаются в порядке строк пакета
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < users.size(); i++) {
+            Number id = (Number) keys.get(i).values().iterator().next();
+            users.get(i).setId(id.intValue());
+        }
+        return users;
+    }
+
+    // обновление пользователя в одной транзакции: в friends пишется только разница между старыми и новыми друзьями
     @Override
+    @Transactional
     public User updateUser(User user) {
         String sql = "UPDATE users SET email = :email, login = :login, name = :name, birthday = :birthday " +
                 "WHERE id = :id";
@@ -66,13 +130,25 @@ public class UserDbStorage implements UserStorage {
                 .addValue("birthday", Date.valueOf(user.getBirthday()))
                 .addValue("id", user.getId());
 
-        namedJdbcTemplate.update(sql, params);
+        try {
+            // UPDATE блокирует строку пользователя до конца транзакции, параллельные обновления друзей ждут
+            namedJdbcTemplate.update(sql, params);
+        } catch (DuplicateKeyException e) {
+            throw toValidationExceptionDuplicate(e, user);
+        }
+
+        Set<Integer> storedFriendIds = getFriendsIds(user.getId());
+        Set<Integer> newFriendIds = user.getFriends();
 
-        // Удалили строки из таблицы friends, ассоциированные со старой версией объект (по id)
-        delUserFriendsRelations(user);
+        // удаляем тех, кого больше нет в друзьях
+        Set<Integer> removedFriendIds = new HashSet<>(storedFriendIds);
+        removedFriendIds.removeAll(newFriendIds);
+        delUserFriendsRelations(user.getId(), removedFriendIds);
 
-        //  Добавляем вновь пришедшие связи в friends
-        addUserFriendsRelations(user);
+        // добавляем только новых друзей
+        Set<Integer> addedFriendIds = new HashSet<>(newFriendIds);
+        addedFriendIds.removeAll(storedFriendIds);
+        addUserFriendsRelations(user.getId(), addedFriendIds);
 
         return user;
     }
@@ -96,6 +172,33 @@ public class UserDbStorage implements UserStorage {
         return namedJdbcTemplate.query(sql, new UserMapper());
     }
 
+    // страница пользователей с id больше afterId (keyset-пагинация по первичному ключу)
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE id > :afterId ORDER BY id LIMIT :limit";
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+
+        return namedJdbcTemplate.query(sql, params, new UserMapper());
+    }
+
+    // какие из переданных id пользователей есть в БД (одним запросом)
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        String sql = "SELECT id FROM users WHERE id IN (:ids)";
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids);
+
+        return new HashSet<>(namedJdbcTemplate.queryForList(sql, params, Integer.class));
+    }
+
     // проверка существования пользователя
     @Override
     public boolean existsById(int userId) {
@@ -107,57 +210,71 @@ public class UserDbStorage implements UserStorage {
         return Boolean.TRUE.equals(namedJdbcTemplate.queryForObject(sql, params, Boolean.class));
     }
 
-    // проверка совпадения адреса почты в БД (кроме как у текущего пользователя, если пользователь есть)
+    // какие из переданных адресов почты уже заняты (одним запросом)
     @Override
-    public boolean existsByEmail(String email, Integer excludeUserId) {
-        String sql = excludeUserId != null
-                ? "SELECT COUNT(*) > 0 FROM users WHERE email = :email AND id <> :excludeUserId"
-                : "SELECT COUNT(*) > 0 FROM users WHERE email = :email";
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        String sql = "SELECT email FROM users WHERE email IN (:emails)";
 
         MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("email", email);
-        if (excludeUserId != null) {
-            params.addValue("excludeUserId", excludeUserId);
-        }
+                .addValue("emails", emails);
 
-        return Boolean.TRUE.equals(namedJdbcTemplate.queryForObject(sql, params, Boolean.class));
+        return new HashSet<>(namedJdbcTemplate.queryForList(sql, params, String.class));
     }
 
-    // проверка совпадения логина в БД (кроме как у текущего пользователя, если пользователь есть)
+    // какие из переданных логинов уже заняты (одним запросом)
     @Override
-    public boolean existsByLogin(String login, Integer excludeUserId) {
-        String sql = excludeUserId != null
-                ? "SELECT COUNT(*) > 0 FROM users WHERE login = :login AND id <> :excludeUserId"
-                : "SELECT COUNT(*) > 0 FROM users WHERE login = :login";
+    public Set<String> findExistingLogins(Collection<String> logins) {
+        if (logins.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        String sql = "SELECT login FROM users WHERE login IN (:logins)";
 
         MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("login", login);
-        if (excludeUserId != null) {
-            params.addValue("excludeUserId", excludeUserId);
-        }
+                .addValue("logins", logins);
 
-        return Boolean.TRUE.equals(namedJdbcTemplate.queryForObject(sql, params, Boolean.class));
+        return new HashSet<>(namedJdbcTemplate.queryForList(sql, params, String.class));
     }
 
+    // добавление в друзья одним запросом: MERGE вставляет пару, только если ее еще нет.
+    // true — добавлен, false — уже в друзьях; несуществующего пользователя отсекает внешний ключ
     @Override
-    public void addFriend(int userId, int friendId) {
-        String sql = " INSERT INTO friends (user_id, friend_id) VALUES (:userId, :friendId)";
+    public boolean addFriend(int userId, int friendId) {
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("userId", userId)
                 .addValue("friendId", friendId);
 
-        namedJdbcTemplate.update(sql, params);
+        try {
+            return namedJdbcTemplate.update(ADD_FRIEND_IF_ABSENT_SQL, params) > 0;
+        } catch (DuplicateKeyException e) {
+            // параллельный запрос добавил ту же пару (первичный ключ friends_pk)
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            // нарушен внешний ключ на users: выясняем, какого пользователя нет (только на пути ошибки)
+            validateUsersExist(userId, friendId);
+            throw e;
+        }
     }
 
+    // удаление из друзей одним запросом: true — пара была удалена, false — не были друзьями.
+    // Если ничего не удалено, одним запросом проверяем, существуют ли оба пользователя
     @Override
-    public void removeFriend(int userId, int friendId) {
+    public boolean removeFriend(int userId, int friendId) {
         String sql = "DELETE FROM friends WHERE user_id = :userId AND friend_id = :friendId";
 
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("userId", userId)
                 .addValue("friendId", friendId);
 
-        namedJdbcTemplate.update(sql, params);
+        if (namedJdbcTemplate.update(sql, params) > 0) {
+            return true;
+        }
+        validateUsersExist(userId, friendId);
+        return false;
     }
 
     @Override
@@ -172,48 +289,75 @@ public class UserDbStorage implements UserStorage {
         return namedJdbcTemplate.query(sql, params, new UserMapper());
     }
 
+    // пользователи с переданными id одним запросом в порядке списка ids (без свойства friends)
     @Override
-    // список всех друзей (объектов user) пользователя (без свойства friends, ленивая загрузка)
-    public List<User> getCommonFriends(int userId, int otherId) {
-        List<Integer> commonFriendsIds = getCommonFriendsIds(userId, otherId);
-
-        if (commonFriendsIds.isEmpty()) {
+    public List<User> findUsersByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
             return List.of();
         }
 
-        return getUsersFromListIds(commonFriendsIds);
-    }
-
-    // список пользователей на основе их ids
-    private List<User> getUsersFromListIds(List<Integer> ids) {
-
         String sql = " SELECT * FROM users WHERE id IN (:ids)";
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("ids", ids);
 
-        return namedJdbcTemplate.query(sql, params, new UserMapper());
+        Map<Integer, User> usersById = new HashMap<>();
+        namedJdbcTemplate.query(sql, params, new UserMapper())
+                         .forEach(user -> usersById.put(user.getId(), user));
+
+        return ids.stream()
+                  .map(usersById::get)
+                  .filter(Objects::nonNull)
+                  .toList();
     }
 
-    // список ids общих друзей между пользователем и другим пользователем
-    private List<Integer> getCommonFriendsIds(int userId, int otherId) {
-        String sql = "SELECT f1.friend_id FROM users u " +
-                "JOIN friends f1 ON u.id = f1.user_id " +
-                "JOIN friends f2 ON f1.friend_id = f2.friend_id " +
-                "WHERE f1.user_id = :userId AND f2.user_id = :otherId";
+    // все пары дружбы: id пользователя -> id его друзей (для построения графа дружбы в памяти)
+    @Override
+    public Map<Integer, Set<Integer>> getAllFriendsIds() {
+        String sql = "SELECT user_id, friend_id FROM friends";
+
+        Map<Integer, Set<Integer>> friendsIds = new HashMap<>();
+        namedJdbcTemplate.query(sql, rs -> {
+            friendsIds.computeIfAbsent(rs.getInt("user_id"), id -> new HashSet<>()).add(rs.getInt("friend_id"));
+        });
+        return friendsIds;
+    }
 
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", userId)
-                .addValue("otherId", otherId);
+    // NotFoundException для первого из переданных пользователей, которого нет в БД
+    private void validateUsersExist(int userId, int otherId) {
+        Set<Integer> existingIds = findExistingIds(List.of(userId, otherId));
+        for (int id : List.of(userId, otherId)) {
+            if (!existingIds.contains(id)) {
+                throw new NotFoundException("Пользователь с ID " + id + " не найден");
+            }
+        }
+    }
+
+    // нарушение уникальности email/логина (ограничения users_email_uq, users_login_uq) -> ошибка валидации
+    private RuntimeException toValidationExceptionDuplicate(DuplicateKeyException e, User user) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toUpperCase();
 
-        return namedJdbcTemplate.queryForList(sql, params, Integer.class);
+        if (message.contains(EMAIL_UNIQUE_CONSTRAINT)) {
+            log.error("Email {} уже используется другим пользователем", user.getEmail());
+            return new ValidationExceptionDuplicate("Email " + user.getEmail() + " уже занят другим пользователем");
+        }
+        if (message.contains(LOGIN_UNIQUE_CONSTRAINT)) {
+            log.error("Логин {} уже используется другим пользователем", user.getLogin());
+            return new ValidationExceptionDuplicate("Логин " + user.getLogin() + " уже занят другим пользователем");
+        }
+        return e;
     }
 
     // выборка из таблицы friends всех id друзей, связанных с пользователем и обновление их у пользователя
     private User loadFriendsIdsIntoUser(User user) {
+        user.setFriends(getFriendsIds(user.getId()));
+        return user;
+    }
+
+    private Set<Integer> getFriendsIds(int userId) {
         String sql = "SELECT friend_id FROM friends WHERE user_id = :userId";
 
         MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", user.getId());
+                .addValue("userId", userId);
 
         List<Integer> friendsIds = namedJdbcTemplate.queryForList(
                 sql,
@@ -221,30 +365,37 @@ public class UserDbStorage implements UserStorage {
                 Integer.class
         );
 
-        user.setFriends(new HashSet<>(friendsIds));
-        return user;
+        return new HashSet<>(friendsIds);
     }
 
-    private void delUserFriendsRelations(User user) {
-        String sql = "DELETE FROM friends WHERE user_id = :userId";
+    // удаление указанных друзей пользователя одним запросом
+    private void delUserFriendsRelations(int userId, Set<Integer> friendIds) {
+        if (friendIds.isEmpty()) {
+            return;
+        }
 
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", user.getId());
+        String sql = "DELETE FROM friends WHERE user_id = :userId AND friend_id IN (:friendIds)";
 
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("friendIds", friendIds);
 
         namedJdbcTemplate.update(sql, params);
     }
 
-    private void addUserFriendsRelations(User user) {
+    // пакетная вставка друзей пользователя
+    private void addUserFriendsRelations(int userId, Set<Integer> friendIds) {
+        if (friendIds.isEmpty()) {
+            return;
+        }
 
-        Set<Integer> friends = user.getFriends();
         String sql = "INSERT INTO friends (user_id, friend_id) VALUES (:userId, :friendId)";
 
-        MapSqlParameterSource[] batchParams = friends.stream()
-                                                     .map(id -> new MapSqlParameterSource()
-                                                             .addValue("userId", user.getId())
-                                                             .addValue("friendId", id))
-                                                     .toArray(MapSqlParameterSource[]::new);
+        MapSqlParameterSource[] batchParams = friendIds.stream()
+                                                       .map(id -> new MapSqlParameterSource()
+                                                               .addValue("userId", userId)
+                                                               .addValue("friendId", id))
+                                                       .toArray(MapSqlParameterSource[]::new);
 
         namedJdbcTemplate.batchUpdate(sql, batchParams);
     }
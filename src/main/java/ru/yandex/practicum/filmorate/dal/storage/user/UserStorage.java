@@ -4,29 +4,39 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface UserStorage {
     User addUser(User user);
 
+    List<User> addUsers(List<User> users);
+
     User updateUser(User user);
 
     Optional<User> findUserById(int id);
 
     boolean existsById(int userId);
 
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
     Collection<User> getAllUsers();
 
-    void addFriend(int userId, int friendId);
+    List<User> getUsersPage(int afterId, int limit);
+
+    List<User> findUsersByIds(List<Integer> ids);
+
+    boolean addFriend(int userId, int friendId);
 
-    void removeFriend(int userId, int friendId);
+    boolean removeFriend(int userId, int friendId);
 
     List<User> getFriends(int userId);
 
-    List<User> getCommonFriends(int userId, int otherId);
+    Map<Integer, Set<Integer>> getAllFriendsIds();
 
-    boolean existsByLogin(String login, Integer excludeUserId);
+    Set<String> findExistingEmails(Collection<String> emails);
 
-    boolean existsByEmail(String email, Integer excludeUserId);
+    Set<String> findExistingLogins(Collection<String> logins);
 }
 
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// лайк пользователя фильму (элемент пакетной загрузки лайков)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmLike {
+    @Positive(message = "Id фильма должен быть положительным")
+    private int filmId;
+
+    @Positive(message = "Id пользователя должен быть положительным")
+    private int userId;
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// степень разделения двух пользователей: длина кратчайшей цепочки дружбы
+// (null — цепочки не длиннее maxDepth нет)
+@Data
+@AllArgsConstructor
+public class UserDistance {
+    private int userId;
+    private int otherId;
+    private Integer distance;
+    private int maxDepth;
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// итог потокового импорта пользователей: сколько добавлено и ошибки по номерам строк
+@Data
+public class UserImportResult {
+    private int imported;
+    private List<LineError> errors = new ArrayList<>();
+
+    public void addError(int line, String error) {
+        errors.add(new LineError(line, error));
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class LineError {
+        private int line;
+        private String error;
+    }
+}
@@ -0,0 +1,241 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.dal.storage.memory.IntBitmap;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Лайки в памяти в обе стороны: пользователь -> фильмы и фильм -> пользователи, в сжатых множествах IntBitmap.
+// Используется для рекомендаций фильмов (коллаборативная фильтрация по пересечению лайков) и похожих фильмов
+// (MinHash/LSH по множествам лайкнувших, кандидаты пересчитываются по точному коэффициенту Жаккара)
+@Slf4j
+@Component
+public class FilmLikesIndex {
+
+    // сколько самых похожих пользователей участвуют в рекомендациях
+    private static final int NEIGHBOURS_LIMIT = 50;
+
+    private static final Comparator<Score> SCORE_ORDER =
+            Comparator.comparingInt(Score::score).reversed()
+                      .thenComparingInt(Score::id);
+
+    private static final Comparator<Similarity> SIMILARITY_ORDER =
+            Comparator.comparingDouble(Similarity::jaccard).reversed()
+                      .thenComparingInt(Similarity::filmId);
+
+    private final LikeStorage likeStorage;
+
+    private final Map<Integer, IntBitmap> filmsByUser = new HashMap<>();  // id пользователя -> id фильмов
+    private final Map<Integer, IntBitmap> usersByFilm = new HashMap<>();  // id фильма -> id пользователей
+    private final MinHashLsh minHashLsh = new MinHashLsh();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock refreshLock = new ReentrantLock();  // пересчет устаревших подписей — в одном потоке
+
+    public FilmLikesIndex(LikeStorage likeStorage) {
+        this.likeStorage = likeStorage;
+    }
+
+    // первоначальное заполнение из таблицы likes при старте приложения
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, Set<Integer>> likedFilmIds = likeStorage.getLikedFilmIdsByUser();
+
+        lock.writeLock().lock();
+        try {
+            filmsByUser.clear();
+            usersByFilm.clear();
+            minHashLsh.clear();
+            likedFilmIds.forEach((userId, filmIds) -> filmIds.forEach(filmId -> link(filmId, userId)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Индекс лайков для рекомендаций построен для {} пользователей", likedFilmIds.size());
+    }
+
+    public void addLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            link(filmId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            removeValue(filmsByUser, userId, filmId);
+            if (removeValue(usersByFilm, filmId, userId)) {
+                minHashLsh.removeUser(filmId, userId, !usersByFilm.containsKey(filmId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Рекомендации фильмов пользователю. Сходство с другим пользователем — скалярное произведение векторов
+    // лайков (число общих фильмов), считается только по фильмам пользователя. Берутся NEIGHBOURS_LIMIT самых
+    // похожих, фильм получает сумму их сходств; фильмы, уже лайкнутые пользователем, пропускаются.
+    // Работа зависит от лайков пользователя и его соседей, а не от общего числа лайков
+    public List<Integer> getRecommendedFilmIds(int userId, int limit) {
+        lock.readLock().lock();
+        try {
+            IntBitmap userFilms = filmsByUser.get(userId);
+            if (userFilms == null) {
+                return List.of();
+            }
+
+            IntCounter overlaps = new IntCounter();
+            userFilms.forEach(filmId -> usersByFilm.get(filmId).forEach(otherId -> {
+                if (otherId != userId) {
+                    overlaps.increment(otherId);
+                }
+            }));
+
+            IntCounter filmScores = new IntCounter();
+            for (Score neighbour : top(overlaps, NEIGHBOURS_LIMIT)) {
+                filmsByUser.get(neighbour.id()).forEach(filmId -> {
+                    if (!userFilms.contains(filmId)) {
+                        filmScores.add(filmId, neighbour.score());
+                    }
+                });
+            }
+            return top(filmScores, limit).stream()
+                                         .map(Score::id)
+                                         .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Фильмы, которые чаще всего лайкали переданные пользователи (лента друзей): счетчики по фильмам
+    // сливаются из списков лайков пользователей, лучшие limit — по убыванию числа лайков, затем по id
+    public List<Integer> getMostLikedFilmIds(int[] userIds, int limit) {
+        lock.readLock().lock();
+        try {
+            IntCounter likesCount = new IntCounter();
+            for (int userId : userIds) {
+                IntBitmap films = filmsByUser.get(userId);
+                if (films != null) {
+                    films.forEach(likesCount::increment);
+                }
+            }
+            return top(likesCount, limit).stream()
+                                         .map(Score::id)
+                                         .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Похожие фильмы по коэффициенту Жаккара множеств лайкнувших пользователей. Кандидаты — фильмы из общих
+    // LSH-корзин, точное сходство считается только для них; фильмы без общих лайкнувших не попадают
+    public List<Integer> getSimilarFilmIds(int filmId, int limit) {
+        refreshStaleSignatures();
+        TopK<Similarity> top = new TopK<>(limit, SIMILARITY_ORDER);
+
+        lock.readLock().lock();
+        try {
+            IntBitmap users = usersByFilm.get(filmId);
+            if (users == null) {
+                return List.of();
+            }
+            IntBitmap candidates = new IntBitmap();
+            minHashLsh.forEachCandidate(filmId, candidates::add);
+            candidates.forEach(otherId -> {
+                IntBitmap otherUsers = usersByFilm.get(otherId);
+                int common = users.andCardinality(otherUsers);
+                if (common != 0) {
+                    top.offer(new Similarity(otherId,
+                            (double) common / (users.cardinality() + otherUsers.cardinality() - common)));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return top.toList().stream()
+                  .map(Similarity::filmId)
+                  .toList();
+    }
+
+    // Ленивый пересчет подписей, устаревших после удаления лайков. Пересчет стоит SIGNATURE_SIZE хешей на каждый
+    // лайк фильма, поэтому под блокировкой чтения снимаются только множества, хеши считаются без блокировок,
+    // а под блокировкой записи заменяются подпись и корзины (O(BANDS) на фильм). Если пересчет уже идет
+    // в другом потоке, запрос не ждет его и ищет кандидатов по текущим подписям
+    void refreshStaleSignatures() {
+        if (!refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            Map<Integer, Integer> versions;
+            Map<Integer, int[]> users = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                versions = minHashLsh.staleFilms();
+                versions.keySet().forEach(filmId -> users.put(filmId, usersByFilm.get(filmId).toArray()));
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (versions.isEmpty()) {
+                return;
+            }
+
+            Map<Integer, int[]> signatures = new HashMap<>();
+            users.forEach((filmId, userIds) -> signatures.put(filmId, MinHashLsh.signatureOf(userIds)));
+
+            lock.writeLock().lock();
+            try {
+                versions.forEach((filmId, version) ->
+                        minHashLsh.replaceStale(filmId, version, signatures.get(filmId)));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // лучшие limit записей счетчика по убыванию значения, затем по id
+    private static List<Score> top(IntCounter counter, int limit) {
+        TopK<Score> top = new TopK<>(limit, SCORE_ORDER);
+        counter.forEach((id, score) -> top.offer(new Score(id, score)));
+        return top.toList();
+    }
+
+    private void link(int filmId, int userId) {
+        filmsByUser.computeIfAbsent(userId, id -> new IntBitmap()).add(filmId);
+        if (usersByFilm.computeIfAbsent(filmId, id -> new IntBitmap()).add(userId)) {
+            minHashLsh.addUser(filmId, userId);
+        }
+    }
+
+    // true — значение было и удалено
+    private static boolean removeValue(Map<Integer, IntBitmap> index, int key, int value) {
+        IntBitmap values = index.get(key);
+        if (values == null || !values.remove(value)) {
+            return false;
+        }
+        if (values.isEmpty()) {
+            index.remove(key);
+        }
+        return true;
+    }
+
+    private record Score(int id, int score) {
+    }
+
+    private record Similarity(int filmId, double jaccard) {
+    }
+}
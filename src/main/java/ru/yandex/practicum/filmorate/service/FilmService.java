@@ -2,40 +2,59 @@ package ru.yandex.practicum.filmorate.service;
 
 import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dal.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreMask;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class FilmService {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final FilmStorage filmStorage;
     private final UserService userService;
     private final MpaService mpaService;
     private final GenreService genreService;
     private final LikeService likeService;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final GenreMaskIndex genreMaskIndex;
+    // обновление фильма идет под блокировкой его id: запись в films/film_genres и индексы в памяти
+    // меняются в одном порядке, и параллельные обновления не оставляют в индексах устаревшие жанры
+    private final StripedLocks filmLocks = new StripedLocks();
 
-    public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+    public FilmService(FilmStorage filmStorage,
                        UserService userService,
                        MpaService mpaService,
                        GenreService genreService,
-                       LikeService likeService
+                       LikeService likeService,
+                       PopularFilmsIndex popularFilmsIndex,
+                       GenreMaskIndex genreMaskIndex
     ) {
         this.filmStorage = filmStorage;
         this.userService = userService;
         this.mpaService = mpaService;
         this.genreService = genreService;
         this.likeService = likeService;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.genreMaskIndex = genreMaskIndex;
     }
 
     public Film addFilm(Film film) {
@@ -57,20 +76,71 @@ public class FilmService {
 
         // 3. Сохраняем фильм вместе с жанрами
         Film addedFilm = filmStorage.addFilm(film);
+        popularFilmsIndex.addFilm(addedFilm);
+        genreMaskIndex.setGenres(addedFilm);
 
         log.debug("Фильм добавлен: {}", addedFilm);
         return addedFilm;
     }
 
-    public Film updateFilm(Film film) {
-        // 1. Проверяем существование фильма
-        validateFilmExists(film.getId());
+    // Пакетное добавление: MPA и жанры всех фильмов сверяются со справочниками за один проход,
+    // при неизвестных id не сохраняется ни один фильм
+    public List<Film> addFilms(List<Film> films) {
+        Map<Integer, Mpa> mpaById = mpaService.getAllMpa().stream()
+                                              .collect(Collectors.toMap(Mpa::getId, Function.identity()));
+        Map<Integer, Genre> genresById = genreService.getAllGenres().stream()
+                                                     .collect(Collectors.toMap(Genre::getId, Function.identity()));
+
+        Set<Integer> unknownMpaIds = new TreeSet<>();
+        Set<Integer> unknownGenreIds = new TreeSet<>();
+
+        for (Film film : films) {
+            Mpa mpa = mpaById.get(film.getMpa().getId());
+            if (mpa == null) {
+                unknownMpaIds.add(film.getMpa().getId());
+            } else {
+                film.setMpa(mpa);
+            }
+
+            if (film.getGenres() == null) {
+                film.setGenres(new ArrayList<>());
+                continue;
+            }
+            List<Genre> uniqueGenres = new ArrayList<>();
+            for (Genre genre : film.getGenres().stream().distinct().toList()) {
+                Genre knownGenre = genresById.get(genre.getId());
+                if (knownGenre == null) {
+                    unknownGenreIds.add(genre.getId());
+                } else {
+                    uniqueGenres.add(knownGenre);
+                }
+            }
+            film.setGenres(uniqueGenres);
+        }
+
+        if (!unknownMpaIds.isEmpty()) {
+            throw new NotFoundException("Рейтинги MPA с ID " + unknownMpaIds + " не найдены");
+        }
+        if (!unknownGenreIds.isEmpty()) {
+            throw new NotFoundException("Жанры с ID " + unknownGenreIds + " не найдены");
+        }
+
+        List<Film> addedFilms = filmStorage.addFilms(films);
+        addedFilms.forEach(addedFilm -> {
+            popularFilmsIndex.addFilm(addedFilm);
+            genreMaskIndex.setGenres(addedFilm);
+        });
+
+        log.debug("Пакетно добавлено фильмов: {}", addedFilms.size());
+        return addedFilms;
+    }
 
-        // 2. Проверяем существование MPA
+    public Film updateFilm(Film film) {
+        // 1. Проверяем существование MPA
         Mpa mpa = mpaService.findMpaById(film.getMpa().getId()); // выбросит NotFoundException
         film.setMpa(mpa);
 
-        // 3. Проверяем жанры
+        // 2. Проверяем жанры
         if (film.getGenres() != null) {
             List<Genre> uniqueGenres = film.getGenres().stream()
                                            .distinct()
@@ -84,8 +154,14 @@ public class FilmService {
             film.setGenres(new ArrayList<>());
         }
 
-        // 4. Обновление таблицы films
-        Film updatedFilm = filmStorage.updateFilm(film);
+        // 3. Обновление таблицы films; существование фильма проверяет хранилище при блокировке его строки
+        // (NotFoundException), отдельный запрос existsById не нужен
+        Film updatedFilm = filmLocks.withLock(film.getId(), () -> {
+            Film stored = filmStorage.updateFilm(film);
+            popularFilmsIndex.updateFilm(stored);
+            genreMaskIndex.setGenres(stored);
+            return stored;
+        });
 
         log.debug("Фильм полностью обновлен: {}", updatedFilm);
         return updatedFilm;
@@ -101,6 +177,50 @@ public class FilmService {
         return filmStorage.getAllFilms();
     }
 
+    // все фильмы по одному, без сборки всего каталога в память
+    public void streamAllFilms(Consumer<Film> consumer) {
+        filmStorage.streamAllFilms(consumer);
+    }
+
+    // страница фильмов после фильма с id = after (курсор — id последнего фильма предыдущей страницы)
+    public List<Film> getFilmsPage(Integer after, Integer limit) {
+        int afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return filmStorage.getFilmsPage(afterId, pageSize);
+    }
+
+    // Фильмы с заданным набором жанров: match = all — со всеми жанрами, any — хотя бы с одним.
+    // Отбор идет по маскам жанров в памяти, из БД читаются только найденные фильмы.
+    // Без after и limit — все подходящие фильмы, иначе страница по id, как в getFilmsPage
+    public List<Film> getFilmsByGenres(List<Integer> genreIds, String match, Integer after, Integer limit) {
+        if (genreIds.isEmpty()) {
+            throw new ValidationException("Нужно указать хотя бы один жанр");
+        }
+        boolean matchAll = switch (match) {
+            case "all" -> true;
+            case "any" -> false;
+            default -> throw new ValidationException("Параметр match должен быть all или any");
+        };
+        int afterId = after == null ? 0 : after;
+        int pageSize = Integer.MAX_VALUE;  // без пагинации — все подходящие фильмы
+        if (after != null || limit != null) {
+            pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+            if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+                throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+            }
+        }
+        genreIds.forEach(genreService::findGenreById); // выбросит NotFoundException
+
+        List<Integer> filmIds = genreMaskIndex.getFilmIds(GenreMask.ofIds(genreIds), matchAll, afterId, pageSize);
+        List<Film> films = filmStorage.findFilmsByIds(filmIds);
+        log.debug("По жанрам {} ({}) найдено {} фильмов", genreIds, match, films.size());
+        return films;
+    }
+
     public void addLike(int filmId, int userId) {
         // Проверить существование фильма
         validateFilmExists(filmId);
@@ -113,6 +233,31 @@ public class FilmService {
 
     }
 
+    // Пакетная загрузка лайков (события, накопленные клиентами офлайн): повторы в пакете убираются в памяти,
+    // фильмы и пользователи проверяются двумя запросами на весь пакет; уже поставленные лайки пропускаются
+    public List<FilmLike> addLikes(List<FilmLike> likes) {
+        Set<FilmLike> uniqueLikes = new LinkedHashSet<>(likes);
+
+        Set<Integer> filmIds = uniqueLikes.stream().map(FilmLike::getFilmId).collect(Collectors.toSet());
+        Set<Integer> unknownFilmIds = new TreeSet<>(filmIds);
+        unknownFilmIds.removeAll(filmStorage.findExistingIds(filmIds));
+        if (!unknownFilmIds.isEmpty()) {
+            throw new NotFoundException("Фильмы с ID " + unknownFilmIds + " не найдены");
+        }
+
+        Set<Integer> userIds = uniqueLikes.stream().map(FilmLike::getUserId).collect(Collectors.toSet());
+        Set<Integer> unknownUserIds = new TreeSet<>(userIds);
+        unknownUserIds.removeAll(userService.findExistingIds(userIds));
+        if (!unknownUserIds.isEmpty()) {
+            throw new NotFoundException("Пользователи с ID " + unknownUserIds + " не найдены");
+        }
+
+        List<FilmLike> addedLikes = likeService.addLikes(uniqueLikes);
+        log.debug("Пакет лайков: получено {}, уникальных {}, добавлено {}",
+                likes.size(), uniqueLikes.size(), addedLikes.size());
+        return addedLikes;
+    }
+
     public void removeLike(int filmId, int userId) {
         // Проверяем существование фильма
         validateFilmExists(filmId);
@@ -124,11 +269,52 @@ public class FilmService {
         log.debug("Пользователь {} удалил лайк у фильма {}", userId, filmId);
     }
 
-    public List<Film> getPopularFilms(int count) {
+    // популярные фильмы с необязательными фильтрами по жанру, рейтингу MPA и году выхода (null — без фильтра)
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer mpaId, Integer year) {
         if (count <= 0) {
             throw new ValidationException("Число выводимых фильмов должно быть положительным.");
         }
-        return filmStorage.getPopularFilms(count);
+        // порядок фильмов берем из рейтингов в памяти, из БД читаем только сами фильмы по id
+        List<Integer> filmIds = popularFilmsIndex.getPopularFilmIds(count, genreId, mpaId, year);
+        return filmStorage.findFilmsByIds(filmIds);
+    }
+
+    // рекомендации по лайкам похожих пользователей: порядок берем из индекса в памяти, из БД — только фильмы
+    public List<Film> getRecommendations(int userId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Число рекомендаций должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        userService.validateUserExists(userId);
+
+        List<Film> films = filmStorage.findFilmsByIds(likeService.getRecommendedFilmIds(userId, limit));
+        log.debug("Для пользователя {} подобрано {} рекомендованных фильмов", userId, films.size());
+        return films;
+    }
+
+    // похожие фильмы по лайкам: порядок берем из индекса в памяти, из БД — только фильмы
+    public List<Film> getSimilarFilms(int filmId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Число похожих фильмов должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        validateFilmExists(filmId);
+
+        List<Film> films = filmStorage.findFilmsByIds(likeService.getSimilarFilmIds(filmId, limit));
+        log.debug("Для фильма {} найдено {} похожих фильмов", filmId, films.size());
+        return films;
+    }
+
+    // Лента друзей: фильмы, которые чаще всего лайкали друзья пользователя. Счетчики сливаются по индексам
+    // дружбы и лайков в памяти, которые строятся до приема запросов
+    public List<Film> getFriendsFeed(int userId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер ленты должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        userService.validateUserExists(userId);
+
+        List<Integer> filmIds = likeService.getMostLikedFilmIds(userService.getFriendIds(userId), limit);
+        List<Film> films = filmStorage.findFilmsByIds(filmIds);
+        log.debug("Лента пользователя {}: {} фильмов", userId, films.size());
+        return films;
     }
 
     public void validateFilmExists(int id) {
@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.storage.memory.IntBitmap;
+import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Граф дружбы в памяти: id друзей каждого пользователя в сжатой битовой карте IntBitmap.
+// Общие друзья — пересечение двух карт, возможные друзья — подсчет друзей друзей, расстояние — поиск в ширину
+// по прямым и обратным ребрам; все без обращения к таблице friends
+@Slf4j
+@Component
+public class FriendGraphIndex {
+
+    private static final Comparator<Suggestion> SUGGESTION_ORDER =
+            Comparator.comparingInt(Suggestion::mutualFriends).reversed()
+                      .thenComparingInt(Suggestion::userId);
+
+    private final UserStorage userStorage;
+
+    private final Map<Integer, IntBitmap> friendsByUser = new HashMap<>();  // id пользователя -> id друзей
+    private final Map<Integer, IntBitmap> friendOfByUser = new HashMap<>();  // id пользователя -> у кого он в друзьях
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FriendGraphIndex(UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    // первоначальное заполнение из таблицы friends при старте приложения
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, Set<Integer>> friendsIds = userStorage.getAllFriendsIds();
+
+        lock.writeLock().lock();
+        try {
+            friendsByUser.clear();
+            friendOfByUser.clear();
+            friendsIds.forEach((userId, ids) -> ids.forEach(friendId -> link(userId, friendId)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Граф дружбы построен для {} пользователей", friendsIds.size());
+    }
+
+    public void addFriend(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            link(userId, friendId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            unlink(userId, friendId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // полная замена друзей пользователя (обновление пользователя целиком): меняем только разницу
+    public void setFriends(int userId, Collection<Integer> friendIds) {
+        lock.writeLock().lock();
+        try {
+            IntBitmap oldFriends = friendsByUser.get(userId);
+            if (oldFriends != null) {
+                Set<Integer> newFriendIds = Set.copyOf(friendIds);
+                for (int friendId : oldFriends.toArray()) {
+                    if (!newFriendIds.contains(friendId)) {
+                        unlink(userId, friendId);
+                    }
+                }
+            }
+            friendIds.forEach(friendId -> link(userId, friendId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // "Возможно, вы знакомы": друзья друзей пользователя, которых нет у него в друзьях, по убыванию числа
+    // общих друзей (тех друзей пользователя, у кого кандидат в друзьях), при равенстве — по id.
+    // Общие друзья считаются в примитивной хеш-таблице IntCounter, лучшие limit отбираются TopK
+    public List<Integer> getSuggestedFriendIds(int userId, int limit) {
+        TopK<Suggestion> top = new TopK<>(limit, SUGGESTION_ORDER);
+
+        lock.readLock().lock();
+        try {
+            IntBitmap friends = friendsByUser.get(userId);
+            if (friends == null) {
+                return List.of();
+            }
+            IntCounter counter = new IntCounter();
+            friends.forEach(friendId -> {
+                IntBitmap friendsOfFriend = friendsByUser.get(friendId);
+                if (friendsOfFriend != null) {
+                    friendsOfFriend.forEach(candidateId -> {
+                        if (candidateId != userId && !friends.contains(candidateId)) {
+                            counter.increment(candidateId);
+                        }
+                    });
+                }
+            });
+            counter.forEach((candidateId, mutualFriends) -> top.offer(new Suggestion(candidateId, mutualFriends)));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return top.toList().stream()
+                  .map(Suggestion::userId)
+                  .toList();
+    }
+
+    // id друзей пользователя по возрастанию
+    public int[] getFriendIds(int userId) {
+        lock.readLock().lock();
+        try {
+            IntBitmap friends = friendsByUser.get(userId);
+            return friends == null ? new int[0] : friends.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // id общих друзей двух пользователей по возрастанию
+    public List<Integer> getCommonFriendIds(int userId, int otherId) {
+        lock.readLock().lock();
+        try {
+            IntBitmap friends = friendsByUser.get(userId);
+            IntBitmap otherFriends = friendsByUser.get(otherId);
+            if (friends == null || otherFriends == null) {
+                return List.of();
+            }
+            return Arrays.stream(friends.and(otherFriends)).boxed().toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // длина кратчайшей цепочки дружбы от userId до otherId (0 — тот же пользователь) или -1, если цепочки
+    // не длиннее maxDepth нет. Двунаправленный поиск в ширину: вперед по друзьям от userId, назад — по тем,
+    // у кого пользователь в друзьях, от otherId; каждый шаг расширяет меньший фронт. Фронты — массивы int,
+    // посещенные — битовые множества, поэтому на узел ничего не создается
+    public int getDistance(int userId, int otherId, int maxDepth) {
+        if (userId == otherId) {
+            return 0;
+        }
+
+        lock.readLock().lock();
+        try {
+            Frontier forward = new Frontier(userId);
+            Frontier backward = new Frontier(otherId);
+            BitSet forwardVisited = new BitSet();
+            BitSet backwardVisited = new BitSet();
+            forwardVisited.set(userId);
+            backwardVisited.set(otherId);
+
+            int depth = 0;
+            while (depth < maxDepth && forward.size > 0 && backward.size > 0) {
+                depth++;
+                boolean met = forward.size <= backward.size
+                        ? forward.expand(friendsByUser, forwardVisited, backwardVisited)
+                        : backward.expand(friendOfByUser, backwardVisited, forwardVisited);
+                if (met) {
+                    return depth;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void link(int userId, int friendId) {
+        friendsByUser.computeIfAbsent(userId, id -> new IntBitmap()).add(friendId);
+        friendOfByUser.computeIfAbsent(friendId, id -> new IntBitmap()).add(userId);
+    }
+
+    private void unlink(int userId, int friendId) {
+        removeEdge(friendsByUser, userId, friendId);
+        removeEdge(friendOfByUser, friendId, userId);
+    }
+
+    private static void removeEdge(Map<Integer, IntBitmap> edges, int from, int to) {
+        IntBitmap targets = edges.get(from);
+        if (targets != null && targets.remove(to) && targets.isEmpty()) {
+            edges.remove(from);
+        }
+    }
+
+    // текущий уровень поиска в ширину; следующий уровень пишется в запасной массив, затем массивы меняются
+    private static final class Frontier {
+        private int[] ids = new int[16];
+        private int[] next = new int[16];
+        private int size;
+        private int nextSize;
+        private boolean met;
+
+        Frontier(int startId) {
+            ids[0] = startId;
+            size = 1;
+        }
+
+        // шаг на один уровень по ребрам edges; true — дошли до узла, посещенного встречным поиском
+        boolean expand(Map<Integer, IntBitmap> edges, BitSet visited, BitSet otherVisited) {
+            nextSize = 0;
+            met = false;
+            for (int i = 0; i < size && !met; i++) {
+                IntBitmap neighbours = edges.get(ids[i]);
+                if (neighbours != null) {
+                    neighbours.forEach(id -> {
+                        if (otherVisited.get(id)) {
+                            met = true;
+                        } else if (!visited.get(id)) {
+                            visited.set(id);
+                            push(id);
+                        }
+                    });
+                }
+            }
+            int[] swap = ids;
+            ids = next;
+            next = swap;
+            size = nextSize;
+            return met;
+        }
+
+        private void push(int id) {
+            if (nextSize == next.length) {
+                next = Arrays.copyOf(next, nextSize * 2);
+            }
+            next[nextSize++] = id;
+        }
+    }
+
+    private record Suggestion(int userId, int mutualFriends) {
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreMask;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Маски жанров всех фильмов в одном массиве long, индекс — id фильма (id выдаются подряд, поэтому массив плотный).
+// Фильтр по набору жанров — последовательный проход по массиву с одной операцией AND на фильм:
+// "все жанры" — (mask & required) == required, "любой из жанров" — (mask & required) != 0
+@Slf4j
+@Component
+public class GenreMaskIndex {
+
+    private final FilmStorage filmStorage;
+
+    private long[] masks = new long[0];  // id фильма -> маска жанров, 0 — нет жанров или нет фильма
+    private int maxFilmId;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public GenreMaskIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    // первоначальное заполнение по колонке films.genre_mask при старте приложения
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, Long> genreMasks = filmStorage.getGenreMasks();
+        int maxId = genreMasks.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        long[] packed = new long[maxId + 1];
+        genreMasks.forEach((filmId, mask) -> packed[filmId] = mask);
+
+        lock.writeLock().lock();
+        try {
+            masks = packed;
+            maxFilmId = maxId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Маски жанров загружены для {} фильмов", genreMasks.size());
+    }
+
+    // новый фильм или полная замена жанров фильма
+    public void setGenres(Film film) {
+        long mask = GenreMask.of(film.getGenres());
+
+        lock.writeLock().lock();
+        try {
+            int filmId = film.getId();
+            if (filmId >= masks.length) {
+                masks = Arrays.copyOf(masks, Math.max(filmId + 1, masks.length * 2));
+            }
+            masks[filmId] = mask;
+            maxFilmId = Math.max(maxFilmId, filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // id фильмов больше afterId, подходящих под маску жанров required, по возрастанию, не больше limit.
+    // matchAll — нужны все жанры маски, иначе хотя бы один
+    public List<Integer> getFilmIds(long required, boolean matchAll, int afterId, int limit) {
+        List<Integer> filmIds = new ArrayList<>();
+        if (required == 0) {
+            return filmIds;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (afterId >= maxFilmId) {
+                return filmIds;
+            }
+            for (int filmId = Math.max(afterId, 0) + 1; filmId <= maxFilmId && filmIds.size() < limit; filmId++) {
+                long common = masks[filmId] & required;
+                if (matchAll ? common == required : common != 0) {
+                    filmIds.add(filmId);
+                }
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -4,14 +4,27 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dal.storage.like.LikeStorage;
 import ru.yandex.practicum.filmorate.exception.ValidationExceptionDuplicate;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @Service
 public class LikeService {
     private final LikeStorage likeStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final FilmLikesIndex filmLikesIndex;
+    // лайк и снятие лайка одной пары (фильм, пользователь) идут под ее блокировкой: запись в likes и индексы
+    // в памяти обновляются в одном порядке, и индексы не расходятся с таблицей при параллельных запросах
+    private final StripedLocks likeLocks = new StripedLocks();
 
-    public LikeService(LikeStorage likeStorage) {
+    public LikeService(LikeStorage likeStorage,
+                       PopularFilmsIndex popularFilmsIndex,
+                       FilmLikesIndex filmLikesIndex) {
         this.likeStorage = likeStorage;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.filmLikesIndex = filmLikesIndex;
     }
 
     public boolean isFilmLikedByUser(int filmId, int userId) {
@@ -20,24 +33,65 @@ public class LikeService {
     }
 
     public void addLike(int filmId, int userId) {
-        // Проверить существование лайка
-        if (isFilmLikedByUser(filmId, userId)) {
+        // Проверка и вставка — один атомарный запрос: false, если лайк уже был
+        boolean added = likeLocks.withLock(StripedLocks.pair(filmId, userId), () -> {
+            if (!likeStorage.addLike(filmId, userId)) {
+                return false;
+            }
+            popularFilmsIndex.addLike(filmId);
+            filmLikesIndex.addLike(filmId, userId);
+            return true;
+        });
+        if (!added) {
             log.debug("Пользователь {} уже ставил лайк фильму {}", userId, filmId);
             throw new ValidationExceptionDuplicate(
                     String.format("Пользователь %d уже ставил лайк фильму %d", userId, filmId)
             );
         }
+    }
 
-        likeStorage.addLike(filmId, userId);
+    // пакетная загрузка лайков (повторы уже поставленных лайков пропускаются); возвращает добавленные лайки
+    public List<FilmLike> addLikes(Collection<FilmLike> likes) {
+        long[] keys = likes.stream()
+                           .mapToLong(like -> StripedLocks.pair(like.getFilmId(), like.getUserId()))
+                           .toArray();
+        return likeLocks.withLocks(keys, () -> {
+            List<FilmLike> addedLikes = likeStorage.addLikes(likes);
+            addedLikes.forEach(like -> {
+                popularFilmsIndex.addLike(like.getFilmId());
+                filmLikesIndex.addLike(like.getFilmId(), like.getUserId());
+            });
+            return addedLikes;
+        });
     }
 
     public void removeLike(int filmId, int userId) {
-        // Проверить существование лайка
-        if (!isFilmLikedByUser(filmId, userId)) {
+        // Удаление без предварительной проверки: false, если лайка не было
+        boolean removed = likeLocks.withLock(StripedLocks.pair(filmId, userId), () -> {
+            if (!likeStorage.removeLike(filmId, userId)) {
+                return false;
+            }
+            popularFilmsIndex.removeLike(filmId);
+            filmLikesIndex.removeLike(filmId, userId);
+            return true;
+        });
+        if (!removed) {
             log.debug("Лайк пользователя {} для фильма {} не найден", userId, filmId);
-            return;
         }
+    }
+
+    // id рекомендованных пользователю фильмов по лайкам похожих пользователей
+    public List<Integer> getRecommendedFilmIds(int userId, int limit) {
+        return filmLikesIndex.getRecommendedFilmIds(userId, limit);
+    }
+
+    // id фильмов, похожих на фильм по составу лайкнувших пользователей
+    public List<Integer> getSimilarFilmIds(int filmId, int limit) {
+        return filmLikesIndex.getSimilarFilmIds(filmId, limit);
+    }
 
-        likeStorage.removeLike(filmId, userId);
+    // фильмы, которые чаще всего лайкали переданные пользователи, по индексу в памяти
+    public List<Integer> getMostLikedFilmIds(int[] userIds, int limit) {
+        return filmLikesIndex.getMostLikedFilmIds(userIds, limit);
     }
 }
@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.dal.storage.memory.IntBitmap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+// MinHash-подписи множеств лайкнувших пользователей и LSH-индекс по полосам подписи.
+// Подпись — SIGNATURE_SIZE минимумов независимых хешей id пользователей; доля совпавших позиций у двух фильмов
+// оценивает коэффициент Жаккара их множеств. Подпись режется на BANDS полос по ROWS значений, фильмы с
+// совпавшей полосой попадают в одну корзину: пары с Жаккаром выше ~(1/BANDS)^(1/ROWS) = 0.5 находятся
+// с высокой вероятностью, а поиск кандидатов не перебирает весь каталог.
+// Удаление лайка не пересчитывает подпись: если удаленный пользователь давал минимум хотя бы одной позиции,
+// подпись помечается устаревшей и заменяется позже подписью, посчитанной по снимку множества (replaceStale).
+// До замены фильм остается в корзинах прежнего множества — это влияет только на набор кандидатов,
+// точное сходство FilmLikesIndex считает по самим множествам.
+// Не потокобезопасен, доступ синхронизирует FilmLikesIndex
+final class MinHashLsh {
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int SIGNATURE_SIZE = BANDS * ROWS;
+
+    // параметры хешей фиксированы, чтобы подписи не зависели от перезапуска
+    private static final long[] SEEDS = new SplittableRandom(0x5EEDL).longs(SIGNATURE_SIZE).toArray();
+
+    private final Map<Integer, int[]> signatures = new HashMap<>();       // id фильма -> подпись
+    private final Map<Long, IntBitmap> buckets = new HashMap<>();    // полоса и ее хеш -> id фильмов
+    // id фильма с устаревшей подписью -> число изменений его лайков с момента пометки
+    private final Map<Integer, Integer> staleVersions = new HashMap<>();
+
+    // новый лайк: минимумы подписи только уменьшаются, корзины меняются лишь для изменившихся полос
+    void addUser(int filmId, int userId) {
+        int[] signature = signatures.get(filmId);
+        if (signature == null) {
+            signature = emptySignature();
+            applyUser(signature, userId);
+            signatures.put(filmId, signature);
+            changeBuckets(filmId, null, signature);
+            return;
+        }
+        staleVersions.computeIfPresent(filmId, (id, version) -> version + 1);
+        int[] oldSignature = signature.clone();
+        if (applyUser(signature, userId)) {
+            changeBuckets(filmId, oldSignature, signature);
+        }
+    }
+
+    // Удаление лайка: O(SIGNATURE_SIZE) без обхода лайкнувших. Минимум нельзя "откатить", поэтому подпись,
+    // в которой удаленный пользователь давал минимум, помечается устаревшей; lastUser — лайков у фильма не осталось
+    void removeUser(int filmId, int userId, boolean lastUser) {
+        if (lastUser) {
+            staleVersions.remove(filmId);
+            changeBuckets(filmId, signatures.remove(filmId), null);
+            return;
+        }
+        if (staleVersions.computeIfPresent(filmId, (id, version) -> version + 1) != null) {
+            return;
+        }
+        int[] signature = signatures.get(filmId);
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (hash(userId, SEEDS[i]) == signature[i]) {
+                staleVersions.put(filmId, 0);
+                return;
+            }
+        }
+    }
+
+    // фильмы с устаревшими подписями и число их изменений — для проверки снимка в replaceStale
+    Map<Integer, Integer> staleFilms() {
+        return new HashMap<>(staleVersions);
+    }
+
+    // Замена устаревшей подписи посчитанной по снимку множества. Если фильм менялся после снимка
+    // (версия не совпала), подпись остается устаревшей до следующего пересчета; true — подпись заменена
+    boolean replaceStale(int filmId, int version, int[] signature) {
+        Integer current = staleVersions.get(filmId);
+        if (current == null || current != version) {
+            return false;
+        }
+        staleVersions.remove(filmId);
+        changeBuckets(filmId, signatures.put(filmId, signature), signature);
+        return true;
+    }
+
+    void clear() {
+        signatures.clear();
+        buckets.clear();
+        staleVersions.clear();
+    }
+
+    // подпись множества пользователей: SIGNATURE_SIZE хешей на каждого, поэтому считается вне блокировок
+    static int[] signatureOf(int[] userIds) {
+        int[] signature = emptySignature();
+        for (int userId : userIds) {
+            applyUser(signature, userId);
+        }
+        return signature;
+    }
+
+    // фильмы, совпавшие с фильмом хотя бы в одной полосе подписи (могут повторяться)
+    void forEachCandidate(int filmId, IntConsumer action) {
+        int[] signature = signatures.get(filmId);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            IntBitmap films = buckets.get(bucketKey(band, signature));
+            if (films != null) {
+                films.forEach(otherId -> {
+                    if (otherId != filmId) {
+                        action.accept(otherId);
+                    }
+                });
+            }
+        }
+    }
+
+    private void changeBuckets(int filmId, int[] oldSignature, int[] newSignature) {
+        for (int band = 0; band < BANDS; band++) {
+            Long oldKey = oldSignature == null ? null : bucketKey(band, oldSignature);
+            Long newKey = newSignature == null ? null : bucketKey(band, newSignature);
+            if (oldKey != null && oldKey.equals(newKey)) {
+                continue;
+            }
+            if (oldKey != null) {
+                IntBitmap films = buckets.get(oldKey);
+                if (films != null && films.remove(filmId) && films.isEmpty()) {
+                    buckets.remove(oldKey);
+                }
+            }
+            if (newKey != null) {
+                buckets.computeIfAbsent(newKey, key -> new IntBitmap()).add(filmId);
+            }
+        }
+    }
+
+    // true — подпись изменилась
+    private static boolean applyUser(int[] signature, int userId) {
+        boolean changed = false;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            int hash = hash(userId, SEEDS[i]);
+            if (hash < signature[i]) {
+                signature[i] = hash;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static int[] emptySignature() {
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        return signature;
+    }
+
+    // номер полосы в старших битах, хеш ее ROWS значений — в младших
+    private static long bucketKey(int band, int[] signature) {
+        int hash = 1;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            hash = 31 * hash + signature[i];
+        }
+        return ((long) band << 32) | (hash & 0xFFFFFFFFL);
+    }
+
+    // перемешивание id с параметром хеш-функции (финализатор SplitMix64)
+    private static int hash(int userId, long seed) {
+        long x = userId * 0x9E3779B97F4A7C15L + seed;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return (int) ((x ^ (x >>> 31)) >>> 33);
+    }
+}
@@ -0,0 +1,239 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.dal.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Рейтинг фильмов по лайкам в памяти: порядок как в запросе популярных (лайки по убыванию, затем id).
+// Кроме общего рейтинга ведутся рейтинги по каждому жанру, рейтингу MPA и году выхода — выборка
+// "популярные с фильтрами" идет по самому маленькому подходящему рейтингу без запросов к likes/film_genres
+@Slf4j
+@Component
+public class PopularFilmsIndex {
+
+    private static final Comparator<FilmLikes> POPULARITY_ORDER =
+            Comparator.comparingInt(FilmLikes::likes).reversed()
+                      .thenComparingInt(FilmLikes::filmId);
+
+    private final LikeStorage likeStorage;
+    private final FilmStorage filmStorage;
+
+    private final Map<Integer, Integer> likesByFilm = new HashMap<>();  // id фильма -> число лайков
+    private final TreeSet<FilmLikes> ranking = new TreeSet<>(POPULARITY_ORDER);
+    private final Map<Integer, FilmAttributes> attributesByFilm = new HashMap<>();  // id фильма -> жанры, MPA, год
+    private final Map<Integer, TreeSet<FilmLikes>> rankingByGenre = new HashMap<>();
+    private final Map<Integer, TreeSet<FilmLikes>> rankingByMpa = new HashMap<>();
+    private final Map<Integer, TreeSet<FilmLikes>> rankingByYear = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public PopularFilmsIndex(LikeStorage likeStorage, FilmStorage filmStorage) {
+        this.likeStorage = likeStorage;
+        this.filmStorage = filmStorage;
+    }
+
+    // первоначальное заполнение из таблиц likes и films при старте приложения
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, Integer> likesCount = likeStorage.getLikesCountByFilm();
+        Map<Integer, FilmAttributes> attributes = new HashMap<>();
+        filmStorage.streamAllFilms(film -> attributes.put(film.getId(), FilmAttributes.of(film)));
+
+        lock.writeLock().lock();
+        try {
+            likesByFilm.clear();
+            ranking.clear();
+            attributesByFilm.clear();
+            rankingByGenre.clear();
+            rankingByMpa.clear();
+            rankingByYear.clear();
+            attributesByFilm.putAll(attributes);
+            likesCount.forEach((filmId, likes) -> {
+                likesByFilm.put(filmId, likes);
+                addToRankings(new FilmLikes(filmId, likes));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Рейтинг популярных фильмов построен для {} фильмов", likesCount.size());
+    }
+
+    // новый фильм попадает в рейтинги без лайков
+    public void addFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            attributesByFilm.put(film.getId(), FilmAttributes.of(film));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        changeLikes(film.getId(), 0);
+    }
+
+    // жанры, MPA или год фильма могли измениться: переносим фильм между рейтингами с тем же числом лайков
+    public void updateFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            Integer likes = likesByFilm.get(film.getId());
+            if (likes != null) {
+                removeFromRankings(new FilmLikes(film.getId(), likes));
+            }
+            attributesByFilm.put(film.getId(), FilmAttributes.of(film));
+            int newLikes = likes == null ? 0 : likes;
+            likesByFilm.put(film.getId(), newLikes);
+            addToRankings(new FilmLikes(film.getId(), newLikes));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addLike(int filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void removeLike(int filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    // id первых count фильмов рейтинга
+    public List<Integer> getPopularFilmIds(int count) {
+        return getPopularFilmIds(count, null, null, null);
+    }
+
+    // id первых count фильмов рейтинга с фильтрами (null — без фильтра). Обходим самый маленький из рейтингов
+    // по заданным фильтрам, остальные фильтры проверяем по атрибутам фильма
+    public List<Integer> getPopularFilmIds(int count, Integer genreId, Integer mpaId, Integer year) {
+        lock.readLock().lock();
+        try {
+            TreeSet<FilmLikes> source = ranking;
+            for (TreeSet<FilmLikes> filtered : List.of(
+                    rankingFor(rankingByGenre, genreId),
+                    rankingFor(rankingByMpa, mpaId),
+                    rankingFor(rankingByYear, year))) {
+                if (filtered.size() < source.size()) {
+                    source = filtered;
+                }
+            }
+
+            List<Integer> filmIds = new ArrayList<>(Math.min(count, source.size()));
+            Iterator<FilmLikes> iterator = source.iterator();
+            while (iterator.hasNext() && filmIds.size() < count) {
+                int filmId = iterator.next().filmId();
+                if (matches(attributesByFilm.get(filmId), genreId, mpaId, year)) {
+                    filmIds.add(filmId);
+                }
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // O(log n) на каждый рейтинг фильма: удаляем старую позицию и вставляем новую.
+    // Изменения приходят в порядке записи в likes (LikeService обновляет индекс под блокировкой пары
+    // фильм-пользователь), поэтому число лайков здесь совпадает с числом строк likes фильма и не уходит в минус
+    private void changeLikes(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Integer oldLikes = likesByFilm.get(filmId);
+            if (oldLikes != null) {
+                if (delta == 0) {
+                    return;
+                }
+                removeFromRankings(new FilmLikes(filmId, oldLikes));
+            }
+            int newLikes = (oldLikes == null ? 0 : oldLikes) + delta;
+            likesByFilm.put(filmId, newLikes);
+            addToRankings(new FilmLikes(filmId, newLikes));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addToRankings(FilmLikes filmLikes) {
+        ranking.add(filmLikes);
+        FilmAttributes attributes = attributesByFilm.get(filmLikes.filmId());
+        if (attributes == null) {
+            return;
+        }
+        for (int genreId : attributes.genreIds()) {
+            rankingByGenre.computeIfAbsent(genreId, id -> new TreeSet<>(POPULARITY_ORDER)).add(filmLikes);
+        }
+        rankingByMpa.computeIfAbsent(attributes.mpaId(), id -> new TreeSet<>(POPULARITY_ORDER)).add(filmLikes);
+        rankingByYear.computeIfAbsent(attributes.year(), id -> new TreeSet<>(POPULARITY_ORDER)).add(filmLikes);
+    }
+
+    private void removeFromRankings(FilmLikes filmLikes) {
+        ranking.remove(filmLikes);
+        FilmAttributes attributes = attributesByFilm.get(filmLikes.filmId());
+        if (attributes == null) {
+            return;
+        }
+        for (int genreId : attributes.genreIds()) {
+            removeFromRanking(rankingByGenre, genreId, filmLikes);
+        }
+        removeFromRanking(rankingByMpa, attributes.mpaId(), filmLikes);
+        removeFromRanking(rankingByYear, attributes.year(), filmLikes);
+    }
+
+    private static void removeFromRanking(Map<Integer, TreeSet<FilmLikes>> rankings, int key, FilmLikes filmLikes) {
+        TreeSet<FilmLikes> filtered = rankings.get(key);
+        if (filtered != null && filtered.remove(filmLikes) && filtered.isEmpty()) {
+            rankings.remove(key);
+        }
+    }
+
+    // рейтинг по значению фильтра: без фильтра — общий, нет фильмов с таким значением — пустой
+    private TreeSet<FilmLikes> rankingFor(Map<Integer, TreeSet<FilmLikes>> rankings, Integer key) {
+        if (key == null) {
+            return ranking;
+        }
+        return rankings.getOrDefault(key, new TreeSet<>(POPULARITY_ORDER));
+    }
+
+    private static boolean matches(FilmAttributes attributes, Integer genreId, Integer mpaId, Integer year) {
+        if (genreId == null && mpaId == null && year == null) {
+            return true;
+        }
+        if (attributes == null) {
+            return false;
+        }
+        return (mpaId == null || attributes.mpaId() == mpaId)
+                && (year == null || attributes.year() == year)
+                && (genreId == null || attributes.hasGenre(genreId));
+    }
+
+    private record FilmLikes(int filmId, int likes) {
+    }
+
+    private record FilmAttributes(int mpaId, int year, int[] genreIds) {
+
+        static FilmAttributes of(Film film) {
+            int[] genreIds = film.getGenres() == null ? new int[0]
+                    : film.getGenres().stream().mapToInt(Genre::getId).distinct().toArray();
+            return new FilmAttributes(film.getMpa() == null ? 0 : film.getMpa().getId(),
+                    film.getReleaseDate().getYear(), genreIds);
+        }
+
+        boolean hasGenre(int genreId) {
+            for (int id : genreIds) {
+                if (id == genreId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Блокировки по ключу (lock striping): ключ отображается на одну из STRIPES блокировок, поэтому операции с одним
+// ключом выполняются по очереди, а с разными — почти всегда параллельно. Под блокировкой ключа сервисы делают
+// запись в хранилище и обновление индекса в памяти, чтобы индекс видел изменения в порядке их фиксации в БД
+final class StripedLocks {
+    private static final int STRIPES = 256;  // степень двойки
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    StripedLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // ключ для пары id, например (фильм, пользователь)
+    static long pair(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    <T> T withLock(long key, Supplier<T> action) {
+        ReentrantLock lock = locks[stripe(key)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // блокировка сразу нескольких ключей (пакетные операции): полосы берутся по возрастанию номера,
+    // поэтому встречные пакеты не блокируют друг друга навсегда
+    <T> T withLocks(long[] keys, Supplier<T> action) {
+        BitSet stripes = new BitSet(STRIPES);
+        for (long key : keys) {
+            stripes.set(stripe(key));
+        }
+        int locked = 0;
+        int[] order = stripes.stream().toArray();
+        try {
+            for (int stripe : order) {
+                locks[stripe].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                locks[order[i]].unlock();
+            }
+        }
+    }
+
+    // перемешивание битов ключа (финализатор SplitMix64), чтобы соседние id попадали в разные полосы
+    private static int stripe(long key) {
+        long x = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (x ^ (x >>> 31)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Лучшие limit элементов потока кучей ограниченного размера: в корне кучи худший из отобранных,
+// новый элемент сравнивается только с ним, поэтому отбор из n элементов — O(n log limit) по времени
+// и O(limit) по памяти. order — порядок результата, лучшие первыми. Создается на один запрос, не потокобезопасен
+final class TopK<T> {
+    private final int limit;
+    private final Comparator<T> order;
+    private final PriorityQueue<T> heap;
+
+    TopK(int limit, Comparator<T> order) {
+        this.limit = limit;
+        this.order = order;
+        this.heap = new PriorityQueue<>(order.reversed());
+    }
+
+    void offer(T candidate) {
+        if (heap.size() < limit) {
+            heap.add(candidate);
+        } else if (limit > 0 && order.compare(candidate, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+
+    // отобранные элементы в порядке order
+    List<T> toList() {
+        return heap.stream()
+                   .sorted(order)
+                   .toList();
+    }
+}
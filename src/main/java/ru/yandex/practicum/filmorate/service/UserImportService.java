@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptionDuplicate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserImportResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Потоковый импорт пользователей из NDJSON (один пользователь в строке).
+// Строки читаются по одной и копятся в пачки по CHUNK_SIZE: уникальность email и логина в пачке
+// проверяется в памяти, а с БД — двумя запросами IN (...) на пачку; затем пачка пишется одним batch-insert.
+// Ошибочные строки попадают в отчет с номером строки и не останавливают импорт.
+@Slf4j
+@Service
+public class UserImportService {
+    static final int CHUNK_SIZE = 500;
+
+    private final UserStorage userStorage;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public UserImportService(UserStorage userStorage,
+                             ObjectMapper objectMapper,
+                             Validator validator) {
+        this.userStorage = userStorage;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    public UserImportResult importUsers(InputStream inputStream) throws IOException {
+        UserImportResult result = new UserImportResult();
+        List<ImportLine> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            User user = parseLine(line, lineNumber, result);
+            if (user == null) {
+                continue;
+            }
+
+            chunk.add(new ImportLine(lineNumber, user));
+            if (chunk.size() == CHUNK_SIZE) {
+                importChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        importChunk(chunk, result);
+
+        // ошибки разбора пишутся сразу, ошибки уникальности — при записи пачки; в отчете — по порядку строк
+        result.getErrors().sort(Comparator.comparingInt(UserImportResult.LineError::getLine));
+        log.debug("Импорт пользователей: добавлено {}, ошибок {}", result.getImported(), result.getErrors().size());
+        return result;
+    }
+
+    // разбор и валидация одной строки; null — строка с ошибкой (ошибка уже в отчете)
+    private User parseLine(String line, int lineNumber, UserImportResult result) {
+        User user;
+        try {
+            user = objectMapper.readValue(line, User.class);
+        } catch (JsonProcessingException e) {
+            result.addError(lineNumber, "Некорректный JSON: " + e.getOriginalMessage());
+            return null;
+        }
+
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            String errorMessage = violations.stream()
+                                            .map(violation -> violation.getPropertyPath() + ": "
+                                                    + violation.getMessage())
+                                            .sorted()
+                                            .collect(Collectors.joining("; "));
+            result.addError(lineNumber, "Ошибки валидации: " + errorMessage);
+            return null;
+        }
+
+        // Установка name = login, если name пустое; друзья при импорте не переносятся
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+        user.setFriends(new HashSet<>());
+        return user;
+    }
+
+    private void importChunk(List<ImportLine> chunk, UserImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        // занятые в БД email и логины — по одному запросу на пачку
+        Set<String> takenEmails = userStorage.findExistingEmails(
+                chunk.stream().map(importLine -> importLine.user().getEmail()).collect(Collectors.toSet()));
+        Set<String> takenLogins = userStorage.findExistingLogins(
+                chunk.stream().map(importLine -> importLine.user().getLogin()).collect(Collectors.toSet()));
+
+        // принятые строки сразу занимают email и логин, так что повтор внутри пачки тоже отсеивается
+        List<ImportLine> accepted = new ArrayList<>(chunk.size());
+        for (ImportLine importLine : chunk) {
+            User user = importLine.user();
+            if (!takenEmails.add(user.getEmail())) {
+                result.addError(importLine.lineNumber(), "Email " + user.getEmail() + " уже занят другим пользователем");
+            } else if (!takenLogins.add(user.getLogin())) {
+                takenEmails.remove(user.getEmail());
+                result.addError(importLine.lineNumber(), "Логин " + user.getLogin() + " уже занят другим пользователем");
+            } else {
+                accepted.add(importLine);
+            }
+        }
+
+        try {
+            userStorage.addUsers(accepted.stream().map(ImportLine::user).toList());
+            result.setImported(result.getImported() + accepted.size());
+        } catch (ValidationExceptionDuplicate e) {
+            // кто-то занял email или логин параллельно — пакет откатился, пишем пачку построчно
+            log.warn("Пакет пользователей откатился, вставляем построчно: {}", e.getMessage());
+            importOneByOne(accepted, result);
+        }
+    }
+
+    private void importOneByOne(List<ImportLine> lines, UserImportResult result) {
+        for (ImportLine importLine : lines) {
+            try {
+                userStorage.addUser(importLine.user());
+                result.setImported(result.getImported() + 1);
+            } catch (ValidationExceptionDuplicate e) {
+                result.addError(importLine.lineNumber(), e.getMessage());
+            }
+        }
+    }
+
+    private record ImportLine(int lineNumber, User user) {
+    }
+}
@@ -1,38 +1,44 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.ValidationException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationExceptionDuplicate;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserDistance;
 
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Slf4j
 @Service
 public class UserService {
-    private final UserStorage userStorage;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_SUGGESTIONS_LIMIT = 10;
 
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage) {
+    private final UserStorage userStorage;
+    private final FriendGraphIndex friendGraphIndex;
+    private final int maxDistanceDepth;
+    // исходящие дружбы пользователя меняются под блокировкой его id: запись в friends и граф в памяти
+    // обновляются в одном порядке, и граф не расходится с таблицей при параллельных запросах
+    private final StripedLocks friendsLocks = new StripedLocks();
+
+    public UserService(UserStorage userStorage,
+                       FriendGraphIndex friendGraphIndex,
+                       @Value("${filmorate.friends.distance.max-depth:6}") int maxDistanceDepth) {
         this.userStorage = userStorage;
+        this.friendGraphIndex = friendGraphIndex;
+        this.maxDistanceDepth = maxDistanceDepth;
     }
 
     public User addUser(User user) {
-
-        // Проверяем уникальность email
-        if (userStorage.existsByEmail(user.getEmail(), 0)) {
-            log.error("Email {} уже используется другим пользователем", user.getEmail());
-            throw new ValidationExceptionDuplicate("Email " + user.getEmail() + " уже занят другим пользователем");
-        }
-        // Проверяем уникальность login
-        if (userStorage.existsByLogin(user.getLogin(), 0)) {
-            log.error("Логин {} уже используется другим пользователем", user.getLogin());
-            throw new ValidationExceptionDuplicate("Логин " + user.getLogin() + " уже занят другим пользователем");
-        }
+        // Уникальность email и login проверяет БД: storage выбросит ValidationExceptionDuplicate
 
         // Установка name = login, если name пустое
         if (user.getName() == null || user.getName().isBlank()) {
@@ -46,34 +52,38 @@ public class UserService {
 
     public User updateUser(User user) {
 
-        // Проверяем существование пользователя
-        validateUserExists(user.getId());
-
-        // Проверяем уникальность email (кроме текущего пользователя)
-        if (userStorage.existsByEmail(user.getEmail(), user.getId())) {
-            log.error("Email {} уже используется другим пользователем", user.getEmail());
-            throw new ValidationExceptionDuplicate("Email " + user.getEmail() + " уже занят другим пользователем");
-        }
-        // Проверяем уникальность login (кроме текущего пользователя)
-        if (userStorage.existsByLogin(user.getLogin(), user.getId())) {
-            log.error("Логин {} уже используется другим пользователем", user.getLogin());
-            throw new ValidationExceptionDuplicate("Логин " + user.getLogin() + " уже занят другим пользователем");
-        }
+        // Уникальность email и login (кроме текущего пользователя) проверяет БД при обновлении
 
         // Подставляем login, если name пустое
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
 
-        // Проверяем друзей (если список не null)
-        if (user.getFriends() != null) {
-            user.getFriends().forEach(this::findUserById); // Проверяем каждый Id
-        } else {
-            // Если друзей не передали, обнулим список, так как это Post(полный update)
+        // Если друзей не передали, обнулим список, так как это Post(полный update)
+        if (user.getFriends() == null) {
             user.setFriends(new HashSet<>());
         }
 
-        User updatedUser = userStorage.updateUser(user);
+        // Проверяем существование пользователя и всех его друзей одним запросом
+        Set<Integer> idsToCheck = new HashSet<>(user.getFriends());
+        idsToCheck.add(user.getId());
+        Set<Integer> existingIds = userStorage.findExistingIds(idsToCheck);
+
+        if (!existingIds.contains(user.getId())) {
+            throw new NotFoundException("Пользователь с ID " + user.getId() + " не найден");
+        }
+        user.getFriends().stream()
+            .filter(friendId -> !existingIds.contains(friendId))
+            .findFirst()
+            .ifPresent(friendId -> {
+                throw new NotFoundException("Пользователь с ID " + friendId + " не найден");
+            });
+
+        User updatedUser = friendsLocks.withLock(user.getId(), () -> {
+            User stored = userStorage.updateUser(user);
+            friendGraphIndex.setFriends(stored.getId(), stored.getFriends());
+            return stored;
+        });
         log.debug("Пользователь полностью обновлен: {}", updatedUser);
         return updatedUser;
     }
@@ -94,33 +104,49 @@ public class UserService {
         }
     }
 
+    // какие из переданных id пользователей существуют (одним запросом)
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return userStorage.findExistingIds(ids);
+    }
+
     public Collection<User> getAllUsers() {
         Collection<User> users = userStorage.getAllUsers();
         log.debug("Получили список пользователей {}", users);
         return users;
     }
 
+    // страница пользователей после пользователя с id = after (курсор — id последнего пользователя страницы)
+    public List<User> getUsersPage(Integer after, Integer limit) {
+        int afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        List<User> users = userStorage.getUsersPage(afterId, pageSize);
+        log.debug("Получили страницу из {} пользователей после id {}", users.size(), afterId);
+        return users;
+    }
+
     public void addFriend(int userId, int friendId) {
         if (userId == friendId) {
             log.debug("Пользователь {} пытается добавить самого себя в друзья", userId);
             throw new ValidationExceptionDuplicate("Нельзя добавить самого себя в друзья");
         }
-        // проверка пользователей
-        validateUserExists(userId);
-        validateUserExists(friendId);
-
-        User user = findUserById(userId); // подгрузили пользователя с друзьями из БД
 
-        if (user.getFriends().contains(friendId)) {
+        // существование пользователей и повтор дружбы проверяет storage одним запросом (внешние ключи и PK friends)
+        boolean added = friendsLocks.withLock(userId, () -> {
+            if (!userStorage.addFriend(userId, friendId)) {
+                return false;
+            }
+            friendGraphIndex.addFriend(userId, friendId);
+            return true;
+        });
+        if (!added) {
             log.debug("Пользователь {} пытается добавить {} в друзья дважды", userId, friendId);
             throw new ValidationExceptionDuplicate("Нельзя добавить в друзья дважды");
         }
 
-        user.getFriends().add(friendId);
-
-        // таблица связи пользователь - друг
-        userStorage.addFriend(userId, friendId);
-
         log.debug("Пользователь {} добавил {} в друзья", userId, friendId);
 
     }
@@ -130,18 +156,20 @@ public class UserService {
             log.debug("Пользователь {} пытается удалить самого себя из друзей", userId);
             throw new ValidationExceptionDuplicate("Нельзя удалить самого себя из друзей");
         }
-        // проверка пользователей
-        validateUserExists(userId);
-        validateUserExists(friendId);
-
-        User user = findUserById(userId);
 
-        if (!user.getFriends().remove(friendId)) {
+        // storage выбросит NotFoundException, если кого-то из пользователей нет
+        boolean removed = friendsLocks.withLock(userId, () -> {
+            if (!userStorage.removeFriend(userId, friendId)) {
+                return false;
+            }
+            friendGraphIndex.removeFriend(userId, friendId);
+            return true;
+        });
+        if (!removed) {
             log.debug("Дружба не найдена");
             return;
         }
 
-        userStorage.removeFriend(userId, friendId);
         log.debug("Пользователь {} удалил {}  из друзей", userId, friendId);
     }
 
@@ -158,9 +186,37 @@ public class UserService {
         validateUserExists(userId);
         validateUserExists(otherId);
 
-        List<User> users = userStorage.getCommonFriends(userId, otherId);
+        // пересечение битовых карт друзей в памяти, из БД — только найденные пользователи
+        List<User> users = userStorage.findUsersByIds(friendGraphIndex.getCommonFriendIds(userId, otherId));
         log.debug("Получили список {} общих друзей для пользователя {} и {}", users, userId, otherId);
         return users;
     }
-}
 
+    // id друзей пользователя из графа дружбы в памяти
+    public int[] getFriendIds(int userId) {
+        return friendGraphIndex.getFriendIds(userId);
+    }
+
+    // рекомендации друзей по числу общих друзей; из БД читаются только найденные пользователи
+    public List<User> getFriendSuggestions(int userId, Integer limit) {
+        int suggestionsLimit = limit == null ? DEFAULT_SUGGESTIONS_LIMIT : limit;
+        if (suggestionsLimit <= 0 || suggestionsLimit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Число рекомендаций должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        validateUserExists(userId);
+
+        List<User> users = userStorage.findUsersByIds(friendGraphIndex.getSuggestedFriendIds(userId, suggestionsLimit));
+        log.debug("Для пользователя {} подобрано {} возможных друзей", userId, users.size());
+        return users;
+    }
+
+    // степень разделения: поиск в ширину по графу дружбы в памяти, глубина ограничена настройкой
+    public UserDistance getDistance(int userId, int otherId) {
+        validateUserExists(userId);
+        validateUserExists(otherId);
+
+        int distance = friendGraphIndex.getDistance(userId, otherId, maxDistanceDepth);
+        log.debug("Расстояние от пользователя {} до {}: {}", userId, otherId, distance);
+        return new UserDistance(userId, otherId, distance < 0 ? null : distance, maxDistanceDepth);
+    }
+}
@@ -1,46 +0,0 @@
-package ru.yandex.practicum.filmorate.storage.film;
-
-import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.model.Film;
-
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-
-@Component
-public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new HashMap<>();
-
-    @Override
-    public Film addFilm(Film film) {
-        film.setId(getNextId());
-        films.put(film.getId(), film);
-        return film;
-    }
-
-    @Override
-    public Film updateFilm(Film film) {
-        films.put(film.getId(), film);
-        return film;
-    }
-
-    @Override
-    public Film getFilm(int id) {
-        return films.get(id);
-    }
-
-    @Override
-    public Collection<Film> getAllFilms() {
-        return films.values();
-    }
-
-    private int getNextId() {
-        int currentMaxId = films.keySet()
-                                .stream()
-                                .mapToInt(id -> id)
-                                .max()
-                                .orElse(0);
-        return ++currentMaxId;
-    }
-}
-
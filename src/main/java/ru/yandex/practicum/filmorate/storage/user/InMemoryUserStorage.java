@@ -1,48 +0,0 @@
-package ru.yandex.practicum.filmorate.storage.user;
-
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.model.User;
-
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-
-@Slf4j
-@Component
-public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
-
-    @Override
-    public User addUser(User user) {
-        user.setId(getNextId());
-        users.put(user.getId(), user);
-        return user;
-    }
-
-    @Override
-    public User updateUser(User user) {
-        users.put(user.getId(), user);
-        return user;
-    }
-
-    @Override
-    public User getUser(int id) {
-        return users.get(id);
-    }
-
-    @Override
-    public Collection<User> getAllUsers() {
-        return users.values();
-    }
-
-    private int getNextId() {
-        int currentMaxId = users.keySet()
-                                .stream()
-                                .mapToInt(id -> id)
-                                .max()
-                                .orElse(0);
-        return ++currentMaxId;
-    }
-}
-
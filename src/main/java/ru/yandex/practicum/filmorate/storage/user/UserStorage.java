@@ -1,16 +0,0 @@
-package ru.yandex.practicum.filmorate.storage.user;
-
-import ru.yandex.practicum.filmorate.model.User;
-
-import java.util.Collection;
-
-public interface UserStorage {
-    User addUser(User user);
-
-    User updateUser(User user);
-
-    User getUser(int id);
-
-    Collection<User> getAllUsers();
-}
-
@@ -0,0 +1,23 @@
+-- Составные первичные ключи и обратные индексы для таблиц связей likes, friends, film_genres.
+-- В БД, созданных до появления ключей, сначала убираем пустые ссылки и дубликаты строк.
+
+DELETE FROM likes WHERE film_id IS NULL OR user_id IS NULL;
+DELETE FROM likes WHERE _ROWID_ NOT IN (SELECT MIN(_ROWID_) FROM likes GROUP BY film_id, user_id);
+ALTER TABLE likes ALTER COLUMN film_id SET NOT NULL;
+ALTER TABLE likes ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE likes ADD CONSTRAINT IF NOT EXISTS likes_pk PRIMARY KEY (film_id, user_id);
+CREATE INDEX IF NOT EXISTS likes_user_film_idx ON likes (user_id, film_id);
+
+DELETE FROM friends WHERE user_id IS NULL OR friend_id IS NULL;
+DELETE FROM friends WHERE _ROWID_ NOT IN (SELECT MIN(_ROWID_) FROM friends GROUP BY user_id, friend_id);
+ALTER TABLE friends ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE friends ALTER COLUMN friend_id SET NOT NULL;
+ALTER TABLE friends ADD CONSTRAINT IF NOT EXISTS friends_pk PRIMARY KEY (user_id, friend_id);
+CREATE INDEX IF NOT EXISTS friends_friend_user_idx ON friends (friend_id, user_id);
+
+DELETE FROM film_genres WHERE film_id IS NULL OR genre_id IS NULL;
+DELETE FROM film_genres WHERE _ROWID_ NOT IN (SELECT MIN(_ROWID_) FROM film_genres GROUP BY film_id, genre_id);
+ALTER TABLE film_genres ALTER COLUMN film_id SET NOT NULL;
+ALTER TABLE film_genres ALTER COLUMN genre_id SET NOT NULL;
+ALTER TABLE film_genres ADD CONSTRAINT IF NOT EXISTS film_genres_pk PRIMARY KEY (film_id, genre_id);
+CREATE INDEX IF NOT EXISTS film_genres_genre_film_idx ON film_genres (genre_id, film_id);
@@ -0,0 +1,6 @@
+-- Денормализованный счетчик лайков фильма (ведется в LikeDbStorage) и индекс для выборки популярных.
+-- Для уже накопленных лайков счетчик пересчитывается один раз по таблице likes.
+
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INT NOT NULL DEFAULT 0;
+UPDATE films f SET likes_count = (SELECT COUNT(*) FROM likes lk WHERE lk.film_id = f.id);
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, id);
@@ -0,0 +1,6 @@
+-- Уникальность email и логина пользователя обеспечивается ограничениями БД (UserDbStorage переводит
+-- их нарушение в ValidationExceptionDuplicate). Если в старой БД уже есть дубликаты, миграция упадет:
+-- такие записи нужно разобрать вручную, автоматически удалять пользователей нельзя.
+
+ALTER TABLE users ADD CONSTRAINT IF NOT EXISTS users_email_uq UNIQUE (email);
+ALTER TABLE users ADD CONSTRAINT IF NOT EXISTS users_login_uq UNIQUE (login);
@@ -0,0 +1,6 @@
+-- Битовая маска жанров фильма (бит 1 << id жанра, ведется в FilmDbStorage) для фильтра по набору жанров.
+-- Для уже сохраненных фильмов маска считается один раз по таблице film_genres.
+
+ALTER TABLE films ADD COLUMN IF NOT EXISTS genre_mask BIGINT NOT NULL DEFAULT 0;
+UPDATE films f SET genre_mask = COALESCE(
+        (SELECT BIT_OR_AGG(LSHIFT(CAST(1 AS BIGINT), fg.genre_id)) FROM film_genres fg WHERE fg.film_id = f.id), 0);
@@ -0,0 +1,5 @@
+-- Маска жанров фильма (films.genre_mask, BIGINT) вмещает жанры с id от 1 до 63. Ограничение на справочнике
+-- не дает завести жанр, который нельзя закодировать: такой id отклоняется как несуществующий жанр (404).
+-- Если в старой БД уже есть жанр вне диапазона, миграция упадет — его нужно перенумеровать вручную.
+
+ALTER TABLE genres ADD CONSTRAINT IF NOT EXISTS genres_id_mask_chk CHECK (id BETWEEN 1 AND 63);
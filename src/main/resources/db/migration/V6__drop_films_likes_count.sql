@@ -0,0 +1,4 @@
+-- Счетчик лайков films.likes_count (V2) больше не нужен: популярные фильмы ранжирует индекс в памяти,
+-- который строится по таблице likes, а обновление счетчика на каждый лайк блокировало строку фильма.
+DROP INDEX IF EXISTS films_likes_count_idx;
+ALTER TABLE films DROP COLUMN IF EXISTS likes_count;
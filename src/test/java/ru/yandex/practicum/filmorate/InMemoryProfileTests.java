@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.dal.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.dal.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.dal.storage.memory.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.dal.storage.memory.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.dal.storage.memory.InMemoryStore;
+import ru.yandex.practicum.filmorate.dal.storage.memory.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles(InMemoryStore.PROFILE)
+class InMemoryProfileTests {
+
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private LikeStorage likeStorage;
+
+    @Test
+    @DisplayName("в профиле inmemory должны подключаться хранилища в памяти")
+    void inMemoryStoragesTest() {
+        assertThat(filmStorage).isInstanceOf(InMemoryFilmStorage.class);
+        assertThat(userStorage).isInstanceOf(InMemoryUserStorage.class);
+        assertThat(likeStorage).isInstanceOf(InMemoryLikeStorage.class);
+    }
+}
@@ -7,8 +7,11 @@ import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.migration.SchemaMigrator;
+import ru.yandex.practicum.filmorate.dal.storage.genre.CachedGenreStorage;
 import ru.yandex.practicum.filmorate.dal.storage.genre.GenreDbStorage;
 import ru.yandex.practicum.filmorate.dal.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.dal.storage.mpa.CachedMpaStorage;
 import ru.yandex.practicum.filmorate.dal.storage.mpa.MpaDbStorage;
 import ru.yandex.practicum.filmorate.dal.storage.user.UserDbStorage;
 import ru.yandex.practicum.filmorate.model.Genre;
@@ -25,7 +28,8 @@ import java.util.Map;
 @JdbcTest
 @AutoConfigureTestDatabase
 @Import({FilmDbStorage.class, UserDbStorage.class, LikeDbStorage.class,
-        GenreDbStorage.class, MpaDbStorage.class})
+        GenreDbStorage.class, MpaDbStorage.class, CachedGenreStorage.class, CachedMpaStorage.class,
+        SchemaMigrator.class})
 public abstract class BaseStorageTest {
 
     public static final int TEST_FILM_ID = 1;
@@ -49,6 +53,9 @@ public abstract class BaseStorageTest {
     @Autowired
     protected MpaDbStorage mpaStorage;
 
+    @Autowired
+    protected SchemaMigrator schemaMigrator;
+
     /* ==================== Очистка всех таблиц ==================== */
 
     /**
@@ -59,7 +66,7 @@ public abstract class BaseStorageTest {
         jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
 
         // Таблицы, которые не очищаем
-        List<String> skipTables = List.of("genres", "mpa");
+        List<String> skipTables = List.of("genres", "mpa", "schema_version");
 
         // Получаем список всех таблиц из метаданных
         List<String> tables = jdbcTemplate.queryForList(
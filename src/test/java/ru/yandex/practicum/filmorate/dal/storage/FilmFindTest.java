@@ -9,9 +9,9 @@ import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -79,42 +79,55 @@ public class FilmFindTest extends BaseStorageTest {
     }
 
     @Test
-    @DisplayName("должен возвращать топ популярных фильмов по лайкам")
-    void getPopularFilmsTest() {
-        // Вставляем 3 фильма
+    @DisplayName("должен отдавать все фильмы потоком по порядку id вместе с жанрами")
+    void streamAllFilmsTest() {
+
+        insertTestFilms(5);
+        insertTestFilmWithoutGenres();
+
+        List<Film> films = new ArrayList<>();
+        filmStorage.streamAllFilms(films::add);
+
+        assertThat(films).extracting(Film::getId).containsExactly(1, 2, 3, 4, 5, 6);
+        assertThat(films.subList(0, 5)).allSatisfy(f -> assertThat(f.getGenres())
+                .hasSize(2)
+                .extracting(Genre::getId)
+                .isSorted());
+        assertThat(films.get(5).getGenres()).isEmpty();
+    }
+
+    private void insertTestFilmWithoutGenres() {
+        jdbcTemplate.update("""
+                    INSERT INTO films (id, name, description, release_date, duration, mpa_id)
+                    VALUES (6, 'Без жанров', 'Описание', '2001-01-01', 90, 2)
+                """);
+    }
+
+    @Test
+    @DisplayName("должен возвращать страницу фильмов после заданного id")
+    void getFilmsPageTest() {
+
+        insertTestFilms(10);
+
+        List<Film> firstPage = filmStorage.getFilmsPage(0, 4);
+        List<Film> secondPage = filmStorage.getFilmsPage(firstPage.get(firstPage.size() - 1).getId(), 4);
+        List<Film> lastPage = filmStorage.getFilmsPage(8, 4);
+
+        assertThat(firstPage).extracting(Film::getId).containsExactly(1, 2, 3, 4);
+        assertThat(secondPage).extracting(Film::getId).containsExactly(5, 6, 7, 8);
+        assertThat(lastPage).extracting(Film::getId).containsExactly(9, 10);
+        assertThat(firstPage).allSatisfy(f -> assertThat(f.getGenres()).hasSize(2));
+    }
+
+    @Test
+    @DisplayName("должен возвращать фильмы по списку id в заданном порядке")
+    void findFilmsByIdsTest() {
         insertTestFilms(3);
 
-        // Вставляем 3 пользователей
-        insertTestUsers(3);
-
-        // Лайки: фильм 2 — 3 лайка, фильм 1 — 2 лайка, фильм 3 — 1 лайк
-        insertTestLikes(Map.of(
-                1, List.of(1, 2),
-                2, List.of(1, 2, 3),
-                3, List.of(3)
-        ));
-
-        // Запрашиваем топ-2 популярных фильмов
-        List<Film> popularFilms = filmStorage.getPopularFilms(2);
-
-        // Проверяем, что вернулось ровно 2 фильма
-        assertThat(popularFilms).hasSize(2);
-
-        // Проверяем, что первым идёт фильм 2 (3 лайка), потом фильм 1 (2 лайка)
-        assertThat(popularFilms.get(0).getId()).isEqualTo(2);
-        assertThat(popularFilms.get(1).getId()).isEqualTo(1);
-
-        // Проверяем, что MPA подгружен
-        assertThat(popularFilms)
-                .allSatisfy(f -> assertThat(f.getMpa()).isNotNull());
-
-        // Проверяем, что жанры подгружены и отсортированы по id
-        assertThat(popularFilms)           // 1. Берём коллекцию фильмов
-            .allSatisfy(f ->          // 2. Для КАЖДОГО фильма `f` проверяем условие:
-                assertThat(f.getGenres())  // 3. Берём жанры фильма `f`
-                .extracting(Genre::getId)  // 4. Извлекаем Id каждого жанра
-                 .isSorted()               // 5. Проверяем, что Ids идут в порядке возрастания
-        );
+        List<Film> films = filmStorage.findFilmsByIds(List.of(3, 9999, 1));
+
+        assertThat(films).extracting(Film::getId).containsExactly(3, 1);
+        assertThat(films).allSatisfy(f -> assertThat(f.getGenres()).isNotEmpty());
     }
 
     @Test
@@ -126,4 +139,13 @@ public class FilmFindTest extends BaseStorageTest {
         assertThat(filmStorage.existsById(TEST_FILM_ID)).isTrue();
         assertThat(filmStorage.existsById(9999)).isFalse();
     }
+
+    @Test
+    @DisplayName("должен возвращать существующие id фильмов из переданного набора")
+    void findExistingIdsTest() {
+        insertTestFilms(3);
+
+        assertThat(filmStorage.findExistingIds(List.of(1, 3, 9999))).containsExactlyInAnyOrder(1, 3);
+        assertThat(filmStorage.findExistingIds(List.of())).isEmpty();
+    }
 }
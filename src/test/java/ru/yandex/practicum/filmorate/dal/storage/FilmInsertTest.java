@@ -68,4 +68,43 @@ public class FilmInsertTest extends BaseStorageTest {
                 .ignoringFields("mpa.name", "genres.name")
                 .isEqualTo(expectedFilm);
     }
+
+    @Test
+    @DisplayName("должен пакетно добавлять фильмы с жанрами и возвращать сгенерированные id")
+    void addFilmsTest() {
+
+        List<Film> films = List.of(
+                Film.builder()
+                    .name("Матрица")
+                    .description("Описание 1")
+                    .releaseDate(LocalDate.of(1999, 3, 31))
+                    .duration(136)
+                    .mpa(new Mpa(4, null))
+                    .genres(List.of(new Genre(4, null), new Genre(6, null)))
+                    .build(),
+                Film.builder()
+                    .name("Без жанров")
+                    .description("Описание 2")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(90)
+                    .mpa(new Mpa(1, null))
+                    .genres(List.of())
+                    .build());
+
+        List<Film> addedFilms = filmStorage.addFilms(films);
+
+        assertThat(addedFilms).extracting(Film::getId).doesNotHaveDuplicates().allMatch(id -> id > 0);
+
+        Film firstFromDB = filmStorage.findFilmById(addedFilms.get(0).getId()).orElseThrow();
+        assertThat(firstFromDB.getName()).isEqualTo("Матрица");
+        assertThat(firstFromDB.getGenres()).extracting(Genre::getId).containsExactly(4, 6);
+
+        Film secondFromDB = filmStorage.findFilmById(addedFilms.get(1).getId()).orElseThrow();
+        assertThat(secondFromDB.getName()).isEqualTo("Без жанров");
+        assertThat(secondFromDB.getGenres()).isEmpty();
+
+        assertThat(filmStorage.getGenreMasks())
+                .containsEntry(firstFromDB.getId(), (1L << 4) | (1L << 6))
+                .containsEntry(secondFromDB.getId(), 0L);
+    }
 }
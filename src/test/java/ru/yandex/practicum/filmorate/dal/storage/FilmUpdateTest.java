@@ -8,8 +8,8 @@ import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.NoSuchElementException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -70,6 +70,47 @@ public class FilmUpdateTest extends BaseStorageTest {
         assertThat(updatedFilmFromDB.getGenres()).isEmpty();
     }
 
+    @Test
+    @DisplayName("должен добавлять новые и удалять убранные жанры, сохраняя неизменные")
+    void updateFilmGenresDeltaTest() {
+
+        insertTestFilm();   // фильм с жанром 1
+        jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) VALUES (1, 2)");
+
+        Film film = filmStorage.findFilmById(TEST_FILM_ID)
+                               .orElseThrow(() -> new NotFoundException("Фильм не найден"));
+        film.setGenres(List.of(new Genre(2, null), new Genre(3, null)));
+
+        filmStorage.updateFilm(film);
+
+        List<Integer> genreIds = jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genres WHERE film_id = ? ORDER BY genre_id", Integer.class, TEST_FILM_ID);
+        assertThat(genreIds).containsExactly(2, 3);
+    }
+
+    @Test
+    @DisplayName("должен хранить маску жанров фильма и обновлять ее вместе с жанрами")
+    void genreMaskTest() {
+
+        Film film = filmStorage.addFilm(Film.builder()
+                                            .name("Матрица")
+                                            .description("Описание")
+                                            .releaseDate(LocalDate.of(1999, 3, 31))
+                                            .duration(136)
+                                            .mpa(new Mpa(1, null))
+                                            .genres(List.of(new Genre(1, null), new Genre(4, null)))
+                                            .build());
+        assertThat(filmStorage.getGenreMasks()).containsEntry(film.getId(), (1L << 1) | (1L << 4));
+
+        film.setGenres(List.of(new Genre(2, null)));
+        filmStorage.updateFilm(film);
+        assertThat(filmStorage.getGenreMasks()).containsEntry(film.getId(), 1L << 2);
+
+        film.setGenres(List.of());
+        filmStorage.updateFilm(film);
+        assertThat(filmStorage.getGenreMasks()).containsEntry(film.getId(), 0L);
+    }
+
     @Test
     @DisplayName("должен выбрасывать исключение при обновлении несуществующего фильма")
     void updateNonExistentFilmTest() {
@@ -81,6 +122,6 @@ public class FilmUpdateTest extends BaseStorageTest {
                                    .name("Несуществующий фильм")
                                    .build();
 
-        assertThrows(NoSuchElementException.class, () -> filmStorage.updateFilm(nonExistentFilm));
+        assertThrows(NotFoundException.class, () -> filmStorage.updateFilm(nonExistentFilm));
     }
 }
@@ -4,12 +4,14 @@ package ru.yandex.practicum.filmorate.dal.storage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class GenreDbStorageTest extends BaseStorageTest {
 
@@ -69,4 +71,11 @@ public class GenreDbStorageTest extends BaseStorageTest {
     void existsByIdFalseTest() {
         assertThat(genreStorage.existsById(999)).isFalse();
     }
+
+    @Test
+    @DisplayName("не должен допускать жанр, не помещающийся в маску жанров фильма")
+    void genreIdOutOfMaskRangeTest() {
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("INSERT INTO genres (id, name) VALUES (64, 'Лишний')"));
+    }
 }
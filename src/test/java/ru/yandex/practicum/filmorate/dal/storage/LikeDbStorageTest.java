@@ -3,6 +3,11 @@ package ru.yandex.practicum.filmorate.dal.storage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatNoException;
@@ -116,4 +121,74 @@ public class LikeDbStorageTest extends BaseStorageTest {
         );
         assertThat(likesForFilm3).isEqualTo(0);
     }
+
+    @Test
+    @DisplayName("должен учитывать добавление и повторное удаление лайков в их числе")
+    void shouldChangeLikesCount() {
+        insertTestFilm();
+        insertTestUsers(2);
+
+        likeStorage.addLike(TEST_FILM_ID, 1);
+        likeStorage.addLike(TEST_FILM_ID, 2);
+        assertThat(likeStorage.getLikesCountByFilm()).containsEntry(TEST_FILM_ID, 2);
+
+        likeStorage.removeLike(TEST_FILM_ID, 1);
+        likeStorage.removeLike(TEST_FILM_ID, 1); // повторное удаление не должно менять число лайков
+        assertThat(likeStorage.getLikesCountByFilm()).containsEntry(TEST_FILM_ID, 1);
+    }
+
+    @Test
+    @DisplayName("должен возвращать число лайков каждого фильма, включая фильмы без лайков")
+    void getLikesCountByFilmTest() {
+        insertTestFilms(3);
+        insertTestUsers(2);
+        insertTestLikes(Map.of(1, List.of(1, 2), 2, List.of(2)));
+
+        assertThat(likeStorage.getLikesCountByFilm()).isEqualTo(Map.of(1, 2, 2, 1, 3, 0));
+    }
+
+    @Test
+    @DisplayName("должен возвращать id лайкнутых фильмов каждого пользователя")
+    void getLikedFilmIdsByUserTest() {
+        insertTestFilms(3);
+        insertTestUsers(2);
+        insertTestLikes(Map.of(1, List.of(1, 2), 2, List.of(2)));
+
+        assertThat(likeStorage.getLikedFilmIdsByUser()).isEqualTo(Map.of(1, Set.of(1), 2, Set.of(1, 2)));
+    }
+
+    @Test
+    @DisplayName("должен сообщать, изменился ли лайк, и не дублировать повторный лайк")
+    void addAndRemoveLikeResultTest() {
+        insertTestFilm();
+        insertTestUser();
+
+        assertThat(likeStorage.addLike(TEST_FILM_ID, TEST_USER_ID)).isTrue();
+        assertThat(likeStorage.addLike(TEST_FILM_ID, TEST_USER_ID)).isFalse();
+        assertThat(likeStorage.getLikesCountByFilm()).containsEntry(TEST_FILM_ID, 1);
+
+        assertThat(likeStorage.removeLike(TEST_FILM_ID, TEST_USER_ID)).isTrue();
+        assertThat(likeStorage.removeLike(TEST_FILM_ID, TEST_USER_ID)).isFalse();
+        assertThat(likeStorage.getLikesCountByFilm()).containsEntry(TEST_FILM_ID, 0);
+    }
+
+    @Test
+    @DisplayName("должен пакетно добавлять только отсутствующие лайки")
+    void addLikesTest() {
+        insertTestFilms(2);
+        insertTestUsers(3);
+        likeStorage.addLike(1, 1);
+
+        List<FilmLike> addedLikes = likeStorage.addLikes(List.of(
+                new FilmLike(1, 1),     // уже есть
+                new FilmLike(1, 2),
+                new FilmLike(2, 3)));
+
+        assertThat(addedLikes).containsExactly(new FilmLike(1, 2), new FilmLike(2, 3));
+        assertThat(likeStorage.getLikesCountByFilm()).containsEntry(1, 2).containsEntry(2, 1);
+
+        // повторная загрузка того же пакета ничего не меняет
+        assertThat(likeStorage.addLikes(List.of(new FilmLike(1, 2), new FilmLike(2, 3)))).isEmpty();
+        assertThat(likeStorage.getLikesCountByFilm()).containsEntry(1, 2).containsEntry(2, 1);
+    }
 }
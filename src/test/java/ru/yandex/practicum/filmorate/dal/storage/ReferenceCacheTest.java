@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.dal.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.yandex.practicum.filmorate.dal.storage.genre.CachedGenreStorage;
+import ru.yandex.practicum.filmorate.dal.storage.mpa.CachedMpaStorage;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReferenceCacheTest extends BaseStorageTest {
+
+    @Autowired
+    private CachedGenreStorage cachedGenreStorage;
+
+    @Autowired
+    private CachedMpaStorage cachedMpaStorage;
+
+    @Test
+    @DisplayName("должен отдавать справочники жанров и MPA из кеша")
+    void preloadTest() {
+        assertThat(cachedGenreStorage.getAllGenres()).containsExactlyElementsOf(EXPECTED_GENRES);
+        assertThat(cachedMpaStorage.getAllMpa()).containsExactlyElementsOf(EXPECTED_MPAS);
+
+        assertThat(cachedGenreStorage.getGenreById(4)).map(Genre::getName).hasValue("Триллер");
+        assertThat(cachedMpaStorage.findMpaById(3)).map(Mpa::getName).hasValue("PG-13");
+        assertThat(cachedGenreStorage.existsById(99)).isFalse();
+        assertThat(cachedMpaStorage.existsById(99)).isFalse();
+    }
+
+    @Test
+    @DisplayName("должен видеть изменения справочника только после перезагрузки")
+    void loadTest() {
+        jdbcTemplate.update("INSERT INTO genres (id, name) VALUES (7, 'Фантастика')");
+        jdbcTemplate.update("INSERT INTO mpa (id, name) VALUES (6, 'X')");
+
+        assertThat(cachedGenreStorage.existsById(7)).isFalse();
+        assertThat(cachedMpaStorage.existsById(6)).isFalse();
+
+        cachedGenreStorage.load();
+        cachedMpaStorage.load();
+
+        assertThat(cachedGenreStorage.getGenreById(7)).map(Genre::getName).hasValue("Фантастика");
+        assertThat(cachedMpaStorage.findMpaById(6)).map(Mpa::getName).hasValue("X");
+
+        // откатываем справочники к исходному виду для остальных тестов
+        jdbcTemplate.update("DELETE FROM genres WHERE id = 7");
+        jdbcTemplate.update("DELETE FROM mpa WHERE id = 6");
+        cachedGenreStorage.load();
+        cachedMpaStorage.load();
+    }
+
+    @Test
+    @DisplayName("должен выбрасывать NotFoundException, если жанра фильма нет в кеше справочника")
+    void genreMissingInCacheTest() {
+        insertTestFilm();
+        // жанр появился в БД в обход приложения и в кеш не загружен
+        jdbcTemplate.update("INSERT INTO genres (id, name) VALUES (7, 'Фантастика')");
+        jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) VALUES (?, 7)", TEST_FILM_ID);
+
+        assertThatThrownBy(() -> filmStorage.findFilmById(TEST_FILM_ID))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("Жанр с ID 7");
+    }
+
+    @Test
+    @DisplayName("изменение полученного объекта не должно менять кеш")
+    void copyOnReadTest() {
+        cachedGenreStorage.getGenreById(1).orElseThrow().setName("Изменено");
+
+        assertThat(cachedGenreStorage.getGenreById(1)).map(Genre::getName).hasValue("Комедия");
+    }
+}
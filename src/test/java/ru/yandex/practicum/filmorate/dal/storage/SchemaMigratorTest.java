@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.dal.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SchemaMigratorTest extends BaseStorageTest {
+
+    @BeforeEach
+    void setUp() {
+        cleanAllTables();
+    }
+
+    @Test
+    @DisplayName("должен записывать примененные версии миграций")
+    void appliedVersionsTest() {
+        List<Integer> versions = jdbcTemplate.queryForList(
+                "SELECT version FROM schema_version ORDER BY version", Integer.class);
+
+        assertThat(versions).containsExactly(1, 2, 3, 4, 5, 6);
+    }
+
+    @Test
+    @DisplayName("должен создавать обратные индексы таблиц связей")
+    void reverseIndexesTest() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT LOWER(index_name) FROM information_schema.indexes WHERE table_schema = 'PUBLIC'",
+                String.class);
+
+        assertThat(indexes).contains("likes_user_film_idx", "friends_friend_user_idx",
+                "film_genres_genre_film_idx");
+    }
+
+    @Test
+    @DisplayName("повторный запуск не должен применять миграции заново")
+    void migrateTwiceTest() {
+        schemaMigrator.migrate();
+
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM schema_version", Integer.class);
+        assertThat(count).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("должен убирать дубликаты и добавлять первичный ключ в таблицу лайков старой БД")
+    void migrateLegacyLikesTest() {
+        insertTestFilm();
+        insertTestUser();
+        jdbcTemplate.execute("ALTER TABLE likes DROP CONSTRAINT likes_pk");
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (1, 1), (1, 1)");
+        jdbcTemplate.update("DELETE FROM schema_version WHERE version = 1");
+
+        schemaMigrator.migrate();
+
+        Integer likes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class);
+        assertThat(likes).isEqualTo(1);
+
+        Integer primaryKeys = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.table_constraints " +
+                        "WHERE LOWER(table_name) = 'likes' AND constraint_type = 'PRIMARY KEY'",
+                Integer.class);
+        assertThat(primaryKeys).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("должен заполнять маску жанров фильмов старой БД по таблице film_genres")
+    void migrateLegacyGenreMaskTest() {
+        insertTestFilm();  // фильм с жанром 1, маска не заполнена
+        jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) VALUES (1, 5)");
+        jdbcTemplate.execute("ALTER TABLE films DROP COLUMN genre_mask");
+        jdbcTemplate.update("DELETE FROM schema_version WHERE version = 4");
+
+        schemaMigrator.migrate();
+
+        Long mask = jdbcTemplate.queryForObject("SELECT genre_mask FROM films WHERE id = 1", Long.class);
+        assertThat(mask).isEqualTo((1L << 1) | (1L << 5));
+    }
+
+    @Test
+    @DisplayName("должен удалять неиспользуемый счетчик лайков старой БД")
+    void migrateLegacyLikesCountTest() {
+        jdbcTemplate.execute("ALTER TABLE films ADD COLUMN likes_count INT NOT NULL DEFAULT 0");
+        jdbcTemplate.execute("CREATE INDEX films_likes_count_idx ON films (likes_count DESC, id)");
+        jdbcTemplate.update("DELETE FROM schema_version WHERE version = 6");
+
+        schemaMigrator.migrate();
+
+        Integer columns = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns " +
+                        "WHERE LOWER(table_name) = 'films' AND LOWER(column_name) = 'likes_count'",
+                Integer.class);
+        assertThat(columns).isZero();
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT LOWER(index_name) FROM information_schema.indexes WHERE table_schema = 'PUBLIC'",
+                String.class)).doesNotContain("films_likes_count_idx");
+    }
+}
@@ -9,6 +9,7 @@ import ru.yandex.practicum.filmorate.model.User;
 import java.time.LocalDate;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,6 +62,17 @@ public class UserFindTest extends BaseStorageTest {
         assertThat(users).hasSize(5);
     }
 
+    @Test
+    @DisplayName("должен возвращать страницу пользователей после заданного id")
+    void getUsersPageTest() {
+        insertTestUsers(5);
+
+        assertThat(userStorage.getUsersPage(0, 2)).extracting(User::getId).containsExactly(1, 2);
+        assertThat(userStorage.getUsersPage(2, 2)).extracting(User::getId).containsExactly(3, 4);
+        assertThat(userStorage.getUsersPage(4, 2)).extracting(User::getId).containsExactly(5);
+        assertThat(userStorage.getUsersPage(5, 2)).isEmpty();
+    }
+
     @Test
     @DisplayName("должен проверять существование пользователя")
     void existsByIdTest() {
@@ -71,28 +83,23 @@ public class UserFindTest extends BaseStorageTest {
     }
 
     @Test
-    @DisplayName("должен проверять существование пользователя по email")
-    void existsByEmailTest() {
-        insertTestUser();
+    @DisplayName("должен возвращать существующие id из переданного набора")
+    void findExistingIdsTest() {
+        insertTestUsers(3);
 
-        // есть в БД
-        assertThat(userStorage.existsByEmail("test@mail.ru", null)).isTrue();
-        // нет в БД, кроме как у текущего пользователя
-        assertThat(userStorage.existsByEmail("test@mail.ru", TEST_USER_ID)).isFalse();
-        // нет такого адреса в БД
-        assertThat(userStorage.existsByEmail("nonexistent@mail.ru", null)).isFalse();
+        assertThat(userStorage.findExistingIds(List.of(1, 3, 9999))).containsExactlyInAnyOrder(1, 3);
+        assertThat(userStorage.findExistingIds(List.of())).isEmpty();
     }
 
     @Test
-    @DisplayName("должен проверять существование пользователя по login")
-    void existsByLoginTest() {
-        insertTestUser();
-
-        // есть в БД
-        assertThat(userStorage.existsByLogin("testLogin", null)).isTrue();
-        // нет в БД, кроме как у текущего пользователя
-        assertThat(userStorage.existsByLogin("testLogin", TEST_USER_ID)).isFalse();
-        // нет такого логина в БД
-        assertThat(userStorage.existsByLogin("nonexistentLogin", null)).isFalse();
+    @DisplayName("должен возвращать занятые email и логины из переданного набора")
+    void findExistingEmailsAndLoginsTest() {
+        insertTestUser(); // test@mail.ru, testLogin
+
+        assertThat(userStorage.findExistingEmails(List.of("test@mail.ru", "free@mail.ru")))
+                .containsExactly("test@mail.ru");
+        assertThat(userStorage.findExistingLogins(List.of("testLogin", "freeLogin")))
+                .containsExactly("testLogin");
+        assertThat(userStorage.findExistingEmails(List.of())).isEmpty();
     }
 }
@@ -3,10 +3,13 @@ package ru.yandex.practicum.filmorate.dal.storage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.Set;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 
 public class UserFriendsTest extends BaseStorageTest {
@@ -43,6 +46,30 @@ public class UserFriendsTest extends BaseStorageTest {
         assertThat(friends).isEmpty();
     }
 
+    @Test
+    @DisplayName("должен сообщать, изменилась ли дружба, без повторной вставки")
+    void addAndRemoveFriendResultTest() {
+        insertTestUsers(2);
+
+        assertThat(userStorage.addFriend(1, 2)).isTrue();
+        assertThat(userStorage.addFriend(1, 2)).isFalse();
+        assertThat(userStorage.removeFriend(1, 2)).isTrue();
+        assertThat(userStorage.removeFriend(1, 2)).isFalse();
+    }
+
+    @Test
+    @DisplayName("должен выбрасывать NotFoundException для несуществующего пользователя при изменении дружбы")
+    void addAndRemoveFriendNotFoundTest() {
+        insertTestUsers(1);
+
+        assertThatThrownBy(() -> userStorage.addFriend(1, 9999))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("9999");
+        assertThatThrownBy(() -> userStorage.removeFriend(9999, 1))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("9999");
+    }
+
     @Test
     @DisplayName("должен возвращать список друзей")
     void getFriendsTest() {
@@ -56,14 +83,17 @@ public class UserFriendsTest extends BaseStorageTest {
     }
 
     @Test
-    @DisplayName("должен возвращать список общих друзей")
-    void getCommonFriendsIdsTest() {
+    @DisplayName("должен возвращать все пары дружбы и пользователей по списку id в его порядке")
+    void getAllFriendsIdsAndFindUsersByIdsTest() {
         insertTestUsers(4);
-        insertFriends(1, List.of(2, 3)); // У пользователя 1 друзья 2 и 3
-        insertFriends(4, List.of(2, 3)); // У пользователя 4 друзья 2 и 3
-
-        List<User> commonFriends = userStorage.getCommonFriends(1, 4);
-
-        assertThat(commonFriends).extracting(User::getId).containsExactlyInAnyOrder(2, 3);
+        insertFriends(1, List.of(2, 3));
+        insertFriends(4, List.of(3));
+
+        assertThat(userStorage.getAllFriendsIds())
+                .containsOnlyKeys(1, 4)
+                .containsEntry(1, Set.of(2, 3))
+                .containsEntry(4, Set.of(3));
+        assertThat(userStorage.findUsersByIds(List.of(3, 1, 9999))).extracting(User::getId).containsExactly(3, 1);
+        assertThat(userStorage.findUsersByIds(List.of())).isEmpty();
     }
 }
@@ -3,11 +3,14 @@ package ru.yandex.practicum.filmorate.dal.storage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptionDuplicate;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class UserInsertTest extends BaseStorageTest {
 
@@ -36,5 +39,69 @@ public class UserInsertTest extends BaseStorageTest {
                 .usingRecursiveComparison() // сравнивает рекурсивно по всем вложенным полям
                 .isEqualTo(expectedUser);
     }
-}
 
+    @Test
+    @DisplayName("должен выбрасывать ValidationExceptionDuplicate при повторе email")
+    void addUserDuplicateEmailTest() {
+        insertTestUser(); // test@mail.ru, testLogin
+
+        User user = User.builder()
+                        .email("test@mail.ru")
+                        .login("otherLogin")
+                        .name("Other")
+                        .birthday(LocalDate.of(2000, 3, 22))
+                        .build();
+
+        assertThatThrownBy(() -> userStorage.addUser(user))
+                .isInstanceOf(ValidationExceptionDuplicate.class)
+                .hasMessageContaining("Email");
+    }
+
+    @Test
+    @DisplayName("должен выбрасывать ValidationExceptionDuplicate при повторе логина")
+    void addUserDuplicateLoginTest() {
+        insertTestUser(); // test@mail.ru, testLogin
+
+        User user = User.builder()
+                        .email("other@mail.ru")
+                        .login("testLogin")
+                        .name("Other")
+                        .birthday(LocalDate.of(2000, 3, 22))
+                        .build();
+
+        assertThatThrownBy(() -> userStorage.addUser(user))
+                .isInstanceOf(ValidationExceptionDuplicate.class)
+                .hasMessageContaining("Логин");
+    }
+
+    @Test
+    @DisplayName("должен пакетно добавлять пользователей и возвращать сгенерированные id")
+    void addUsersTest() {
+        List<User> users = List.of(
+                User.builder().email("first@mail.ru").login("first").name("First")
+                    .birthday(LocalDate.of(1990, 1, 1)).build(),
+                User.builder().email("second@mail.ru").login("second").name("Second")
+                    .birthday(LocalDate.of(1995, 5, 5)).build());
+
+        List<User> addedUsers = userStorage.addUsers(users);
+
+        assertThat(addedUsers).extracting(User::getId).doesNotHaveDuplicates().allMatch(id -> id > 0);
+        assertThat(userStorage.findUserById(addedUsers.get(1).getId()))
+                .hasValueSatisfying(user -> assertThat(user.getLogin()).isEqualTo("second"));
+    }
+
+    @Test
+    @DisplayName("должен выбрасывать ValidationExceptionDuplicate при повторе email в пакете")
+    void addUsersDuplicateEmailTest() {
+        insertTestUser(); // test@mail.ru, testLogin
+
+        List<User> users = List.of(
+                User.builder().email("first@mail.ru").login("first").name("First")
+                    .birthday(LocalDate.of(1990, 1, 1)).build(),
+                User.builder().email("test@mail.ru").login("second").name("Second")
+                    .birthday(LocalDate.of(1995, 5, 5)).build());
+
+        assertThatThrownBy(() -> userStorage.addUsers(users))
+                .isInstanceOf(ValidationExceptionDuplicate.class);
+    }
+}
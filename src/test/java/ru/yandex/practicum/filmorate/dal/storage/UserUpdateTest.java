@@ -3,11 +3,16 @@ package ru.yandex.practicum.filmorate.dal.storage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptionDuplicate;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class UserUpdateTest extends BaseStorageTest {
 
@@ -34,5 +39,36 @@ public class UserUpdateTest extends BaseStorageTest {
                 .usingRecursiveComparison()
                 .isEqualTo(updatedUser);
     }
-}
 
+    @Test
+    @DisplayName("должен выбрасывать ValidationExceptionDuplicate, если email занят другим пользователем")
+    void updateUserDuplicateEmailTest() {
+        insertTestUsers(2);
+
+        User updatedUser = new User();
+        updatedUser.setId(2);
+        updatedUser.setEmail("user1@mail.ru");
+        updatedUser.setLogin("login2");
+        updatedUser.setName("Name 2");
+        updatedUser.setBirthday(LocalDate.of(1995, 5, 5));
+
+        assertThatThrownBy(() -> userStorage.updateUser(updatedUser))
+                .isInstanceOf(ValidationExceptionDuplicate.class);
+    }
+
+    @Test
+    @DisplayName("должен добавлять новых и удалять убранных друзей, сохраняя остальных")
+    void updateUserFriendsDeltaTest() {
+        insertTestUsers(4);
+        insertFriends(1, List.of(2, 3));
+
+        User user = userStorage.findUserById(1).orElseThrow();
+        user.setFriends(new HashSet<>(Set.of(3, 4)));
+
+        userStorage.updateUser(user);
+
+        List<Integer> friendIds = jdbcTemplate.queryForList(
+                "SELECT friend_id FROM friends WHERE user_id = 1 ORDER BY friend_id", Integer.class);
+        assertThat(friendIds).containsExactly(3, 4);
+    }
+}
@@ -0,0 +1,258 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.dal.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InMemoryPersistenceTest {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    @DisplayName("должен восстанавливать состояние из журнала после аварийной остановки")
+    void recoverFromWalTest() throws IOException {
+        Engine engine = Engine.start(dataDir);
+        engine.users.addUser(user(1));
+        engine.users.addUser(user(2));
+        engine.users.addFriend(1, 2);
+        engine.films.addFilm(film("Фильм"));
+        engine.likes.addLike(1, 2);
+        // stop() не вызываем — имитация падения без итогового снимка
+
+        Engine recovered = Engine.start(dataDir);
+
+        assertThat(recovered.films.findFilmById(1)).hasValueSatisfying(film -> {
+            assertThat(film.getName()).isEqualTo("Фильм");
+            assertThat(film.getGenres()).extracting(Genre::getId).containsExactly(2);
+        });
+        assertThat(recovered.users.findUserById(1).orElseThrow().getFriends()).containsExactly(2);
+        assertThat(recovered.likes.isFilmLikedByUser(1, 2)).isTrue();
+        // счетчики id продолжаются после восстановленных
+        assertThat(recovered.users.addUser(user(3)).getId()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("должен восстанавливать состояние из снимка и хвоста журнала, удаляя старые сегменты")
+    void recoverFromSnapshotAndWalTest() throws IOException {
+        Engine engine = Engine.start(dataDir);
+        engine.users.addUser(user(1));
+        engine.users.addUser(user(2));
+        engine.films.addFilm(film("Фильм"));
+        engine.likes.addLike(1, 1);
+        engine.likes.addLike(1, 2);
+
+        engine.persistence.snapshot();
+        assertThat(WriteAheadLog.listSegments(dataDir)).hasSize(1);
+
+        // изменения после снимка — только в журнале
+        engine.likes.removeLike(1, 1);
+        User renamed = engine.users.findUserById(2).orElseThrow();
+        renamed.setEmail("renamed@mail.ru");
+        engine.users.updateUser(renamed);
+
+        Engine recovered = Engine.start(dataDir);
+
+        assertThat(recovered.likes.getLikesCountByFilm()).containsEntry(1, 1);
+        assertThat(recovered.likes.isFilmLikedByUser(1, 2)).isTrue();
+        assertThat(recovered.users.findUserById(2).orElseThrow().getEmail()).isEqualTo("renamed@mail.ru");
+        assertThat(recovered.users.findExistingEmails(List.of("user2@mail.ru"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен отбрасывать оборванную последнюю запись журнала")
+    void truncatedWalTailTest() throws IOException {
+        Engine engine = Engine.start(dataDir);
+        engine.users.addUser(user(1));
+
+        List<Long> segments = WriteAheadLog.listSegments(dataDir);
+        Path lastSegment = WriteAheadLog.segmentPath(dataDir, segments.get(segments.size() - 1));
+        long validSize = Files.size(lastSegment);
+        // длина записи 100 байт, а данных дальше нет — сбой посреди записи
+        Files.write(lastSegment, new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        Engine recovered = Engine.start(dataDir);
+
+        assertThat(recovered.users.findUserById(1)).isPresent();
+        assertThat(Files.size(lastSegment)).isEqualTo(validSize);
+    }
+
+    @Test
+    @DisplayName("должен останавливать восстановление при повреждении не последнего сегмента журнала")
+    void corruptedMiddleSegmentTest() throws IOException {
+        Engine engine = Engine.start(dataDir);
+        engine.users.addUser(user(1));
+        engine.users.addUser(user(2));
+        Path firstSegment = WriteAheadLog.segmentPath(dataDir, WriteAheadLog.listSegments(dataDir).get(0));
+        long size = Files.size(firstSegment);
+
+        Engine restarted = Engine.start(dataDir);  // следующие записи — уже в новом сегменте
+        restarted.users.addUser(user(3));
+
+        // портим последний байт первого сегмента: CRC записи не сойдется
+        byte[] bytes = Files.readAllBytes(firstSegment);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(firstSegment, bytes);
+
+        assertThatThrownBy(() -> Engine.start(dataDir))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("не последний сегмент");
+        assertThat(Files.size(firstSegment)).isEqualTo(size);
+    }
+
+    @Test
+    @DisplayName("должен сохранять все параллельные изменения при групповом сбросе журнала")
+    void concurrentGroupCommitTest() throws Exception {
+        Engine engine = Engine.start(dataDir);
+        engine.films.addFilm(film("Фильм"));
+
+        int threads = 8;
+        int perThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    engine.likes.addLike(1, thread * perThread + i + 1);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        engine.persistence.stop();
+
+        Engine recovered = Engine.start(dataDir);
+
+        assertThat(recovered.likes.getLikesCountByFilm()).containsEntry(1, threads * perThread);
+    }
+
+    @Test
+    @DisplayName("не должен терять подтвержденные изменения при снимках, идущих параллельно с записью")
+    void concurrentSnapshotsTest() throws Exception {
+        // пауза между записью лайка в журнал и его применением, чтобы переход на новый сегмент
+        // попадал в этот промежуток
+        Engine engine = Engine.start(dataDir, store -> new InMemoryPersistence(store, dataDir.toString(), 0) {
+            @Override
+            long likeChanged(int filmId, int userId, boolean added) {
+                long seq = super.likeChanged(filmId, userId, added);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+                return seq;
+            }
+        });
+        int threads = 4;
+        for (int i = 0; i < threads; i++) {
+            engine.films.addFilm(film("Фильм " + i));
+        }
+
+        // писатели работают, пока идут снимки: изменения, подтвержденные около последнего снимка,
+        // после него уже не попадут ни в какой другой снимок
+        AtomicBoolean snapshotting = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int filmId = t + 1;
+            writers.add(executor.submit(() -> {
+                int acknowledged = 0;
+                while (snapshotting.get()) {
+                    engine.likes.addLike(filmId, ++acknowledged);
+                }
+                return acknowledged;
+            }));
+        }
+        for (int i = 0; i < 20; i++) {
+            engine.persistence.snapshot();
+        }
+        snapshotting.set(false);
+        List<Integer> acknowledged = new ArrayList<>();
+        for (Future<Integer> writer : writers) {
+            acknowledged.add(writer.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        // stop() не вызываем: восстановление — из последнего снимка и сегментов после него
+
+        Engine recovered = Engine.start(dataDir);
+
+        for (int filmId = 1; filmId <= threads; filmId++) {
+            assertThat(recovered.likes.getLikesCountByFilm()).containsEntry(filmId, acknowledged.get(filmId - 1));
+        }
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                   .name(name)
+                   .description("Описание")
+                   .releaseDate(LocalDate.of(2000, 1, 1))
+                   .duration(100)
+                   .mpa(new Mpa(1, null))
+                   .genres(new ArrayList<>(List.of(new Genre(2, null))))
+                   .build();
+    }
+
+    private static User user(int n) {
+        return User.builder()
+                   .email("user" + n + "@mail.ru")
+                   .login("login" + n)
+                   .name("Name " + n)
+                   .birthday(LocalDate.of(1990, 1, 1))
+                   .friends(Set.of())
+                   .build();
+    }
+
+    // хранилища поверх одного каталога данных, как их собирает Spring в профиле inmemory
+    private record Engine(InMemoryPersistence persistence,
+                          InMemoryFilmStorage films,
+                          InMemoryUserStorage users,
+                          InMemoryLikeStorage likes) {
+
+        static Engine start(Path dataDir) throws IOException {
+            return start(dataDir, store -> new InMemoryPersistence(store, dataDir.toString(), 0));
+        }
+
+        static Engine start(Path dataDir, Function<InMemoryStore, InMemoryPersistence> persistenceFactory)
+                throws IOException {
+            GenreStorage genreStorage = mock(GenreStorage.class);
+            when(genreStorage.getGenreById(anyInt()))
+                    .thenAnswer(invocation -> Optional.of(new Genre(invocation.getArgument(0), "Жанр")));
+            MpaStorage mpaStorage = mock(MpaStorage.class);
+            when(mpaStorage.findMpaById(anyInt()))
+                    .thenAnswer(invocation -> Optional.of(new Mpa(invocation.getArgument(0), "MPA")));
+
+            InMemoryStore store = new InMemoryStore();
+            InMemoryPersistence persistence = persistenceFactory.apply(store);
+            persistence.start();
+            return new Engine(persistence,
+                    new InMemoryFilmStorage(store, persistence, genreStorage, mpaStorage),
+                    new InMemoryUserStorage(store, persistence),
+                    new InMemoryLikeStorage(store, persistence));
+        }
+    }
+}
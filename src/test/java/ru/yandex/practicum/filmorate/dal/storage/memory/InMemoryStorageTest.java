@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.dal.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptionDuplicate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InMemoryStorageTest {
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private InMemoryLikeStorage likeStorage;
+    private GenreStorage genreStorage;
+    private MpaStorage mpaStorage;
+
+    @BeforeEach
+    void setUp() {
+        genreStorage = mock(GenreStorage.class);
+        when(genreStorage.getGenreById(anyInt()))
+                .thenAnswer(invocation -> Optional.of(new Genre(invocation.getArgument(0), "Жанр")));
+        mpaStorage = mock(MpaStorage.class);
+        when(mpaStorage.findMpaById(anyInt()))
+                .thenAnswer(invocation -> Optional.of(new Mpa(invocation.getArgument(0), "MPA")));
+
+        InMemoryStore store = new InMemoryStore();
+        InMemoryPersistence persistence = new InMemoryPersistence(store, "", 0);  // без журнала
+        filmStorage = new InMemoryFilmStorage(store, persistence, genreStorage, mpaStorage);
+        userStorage = new InMemoryUserStorage(store, persistence);
+        likeStorage = new InMemoryLikeStorage(store, persistence);
+    }
+
+    @Test
+    @DisplayName("должен хранить копию фильма с жанрами без повторов, по id и с именами из справочников")
+    void addAndFindFilmTest() {
+        Film film = film("Фильм", List.of(new Genre(6, null), new Genre(1, null), new Genre(6, null)));
+
+        int id = filmStorage.addFilm(film).getId();
+        film.setName("Изменено после добавления");
+
+        Film filmFromStorage = filmStorage.findFilmById(id).orElseThrow();
+        assertThat(filmFromStorage.getName()).isEqualTo("Фильм");
+        assertThat(filmFromStorage.getMpa().getName()).isEqualTo("MPA");
+        assertThat(filmFromStorage.getGenres()).extracting(Genre::getId).containsExactly(1, 6);
+    }
+
+    @Test
+    @DisplayName("должен выдавать фильмы страницами по id и считать лайки фильмов")
+    void filmsPageAndLikesCountTest() {
+        for (int i = 1; i <= 5; i++) {
+            filmStorage.addFilm(film("Фильм " + i, List.of()));
+            userStorage.addUser(user(i));
+        }
+        likeStorage.addLike(4, 1);
+        likeStorage.addLike(4, 2);
+        likeStorage.addLike(2, 3);
+
+        assertThat(filmStorage.getFilmsPage(2, 2)).extracting(Film::getId).containsExactly(3, 4);
+        assertThat(likeStorage.getLikesCountByFilm()).containsEntry(4, 2).containsEntry(5, 0);
+    }
+
+    @Test
+    @DisplayName("должен выбрасывать ValidationExceptionDuplicate при повторе email или логина")
+    void uniqueUserKeysTest() {
+        userStorage.addUser(user(1));
+
+        User sameEmail = user(2);
+        sameEmail.setEmail("user1@mail.ru");
+        assertThatThrownBy(() -> userStorage.addUser(sameEmail))
+                .isInstanceOf(ValidationExceptionDuplicate.class)
+                .hasMessageContaining("Email");
+
+        // после смены логина старый логин освобождается
+        User updated = userStorage.findUserById(1).orElseThrow();
+        updated.setLogin("renamed");
+        userStorage.updateUser(updated);
+        assertThat(userStorage.findExistingLogins(List.of("login1"))).isEmpty();
+        assertThat(userStorage.addUser(user(2)).getId()).isEqualTo(2);
+
+        // обновление несуществующего пользователя — 404, как в UserDbStorage
+        User missing = user(99);
+        missing.setId(99);
+        assertThatThrownBy(() -> userStorage.updateUser(missing)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("должен добавлять и удалять друзей и проверять существование пользователей")
+    void friendsTest() {
+        for (int i = 1; i <= 4; i++) {
+            userStorage.addUser(user(i));
+        }
+
+        assertThat(userStorage.addFriend(1, 3)).isTrue();
+        assertThat(userStorage.addFriend(1, 3)).isFalse();
+        userStorage.addFriend(1, 4);
+        userStorage.addFriend(2, 4);
+        userStorage.addFriend(2, 3);
+
+        assertThat(userStorage.findUserById(1).orElseThrow().getFriends()).containsExactlyInAnyOrder(3, 4);
+        assertThat(userStorage.removeFriend(1, 3)).isTrue();
+        assertThat(userStorage.getFriends(1)).extracting(User::getId).containsExactly(4);
+        assertThatThrownBy(() -> userStorage.addFriend(1, 99)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("должен выдавать уникальные id и не терять лайки при параллельной записи")
+    void concurrentWritesTest() throws InterruptedException {
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int n = thread * perThread + i + 1;
+                    filmStorage.addFilm(film("Фильм " + n, List.of()));
+                    likeStorage.addLike(1, n);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        List<Integer> ids = new ArrayList<>(filmStorage.getAllFilms().stream().map(Film::getId).toList());
+        assertThat(ids).hasSize(threads * perThread).doesNotHaveDuplicates();
+        assertThat(Set.copyOf(ids)).contains(1, threads * perThread);
+        assertThat(likeStorage.getLikesCountByFilm()).containsEntry(1, threads * perThread);
+    }
+
+    @Test
+    @DisplayName("не должен применять изменение, если запись в журнал не принята")
+    void changeNotAppliedWhenLogAppendFailsTest() {
+        InMemoryStore store = new InMemoryStore();
+        InMemoryPersistence persistence = mock(InMemoryPersistence.class);
+        when(persistence.logged(any())).thenAnswer(invocation -> invocation.<Supplier<Long>>getArgument(0).get());
+        InMemoryFilmStorage films = new InMemoryFilmStorage(store, persistence, genreStorage, mpaStorage);
+        InMemoryUserStorage users = new InMemoryUserStorage(store, persistence);
+        InMemoryLikeStorage likes = new InMemoryLikeStorage(store, persistence);
+
+        Film film = films.addFilm(film("Фильм", List.of()));
+        User first = users.addUser(user(1));
+        User second = users.addUser(user(2));
+
+        UncheckedIOException failure = new UncheckedIOException(new IOException("диск недоступен"));
+        when(persistence.likeChanged(anyInt(), anyInt(), anyBoolean())).thenThrow(failure);
+        when(persistence.friendChanged(anyInt(), anyInt(), anyBoolean())).thenThrow(failure);
+        when(persistence.filmSaved(any())).thenThrow(failure);
+        when(persistence.userSaved(any())).thenThrow(failure);
+
+        assertThatThrownBy(() -> likes.addLike(film.getId(), first.getId())).isSameAs(failure);
+        assertThatThrownBy(() -> users.addFriend(first.getId(), second.getId())).isSameAs(failure);
+        Film renamed = film("Новое название", List.of());
+        renamed.setId(film.getId());
+        assertThatThrownBy(() -> films.updateFilm(renamed)).isSameAs(failure);
+        User changed = user(3);
+        changed.setId(first.getId());
+        assertThatThrownBy(() -> users.updateUser(changed)).isSameAs(failure);
+
+        assertThat(likes.isFilmLikedByUser(film.getId(), first.getId())).isFalse();
+        assertThat(users.getFriends(first.getId())).isEmpty();
+        assertThat(films.findFilmById(film.getId()).orElseThrow().getName()).isEqualTo("Фильм");
+        assertThat(users.findUserById(first.getId()).orElseThrow().getEmail()).isEqualTo("user1@mail.ru");
+        // старые email и логин по-прежнему заняты, новые — свободны
+        assertThat(users.findExistingEmails(List.of("user1@mail.ru", "user3@mail.ru"))).containsExactly("user1@mail.ru");
+    }
+
+    private static Film film(String name, List<Genre> genres) {
+        return Film.builder()
+                   .name(name)
+                   .description("Описание")
+                   .releaseDate(LocalDate.of(2000, 1, 1))
+                   .duration(100)
+                   .mpa(new Mpa(1, null))
+                   .genres(new ArrayList<>(genres))
+                   .build();
+    }
+
+    private static User user(int n) {
+        return User.builder()
+                   .email("user" + n + "@mail.ru")
+                   .login("login" + n)
+                   .name("Name " + n)
+                   .birthday(LocalDate.of(1990, 1, 1))
+                   .friends(Set.of())
+                   .build();
+    }
+}
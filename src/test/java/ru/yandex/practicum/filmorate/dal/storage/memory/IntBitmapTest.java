@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IntBitmapTest {
+
+    @Test
+    @DisplayName("должен совпадать с TreeSet при переходе блоков между массивом и битовой картой")
+    void randomOperationsTest() {
+        IntBitmap bitmap = new IntBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(7);
+
+        // плотный диапазон в первом блоке (больше 4096 значений — битовая карта) и разреженные значения в трех
+        for (int i = 0; i < 60_000; i++) {
+            int value = random.nextInt(4) == 0 ? random.nextInt(3 << 16) : random.nextInt(8_000);
+            if (random.nextInt(3) > 0) {
+                assertThat(bitmap.add(value)).isEqualTo(expected.add(value));
+            } else {
+                assertThat(bitmap.remove(value)).isEqualTo(expected.remove(value));
+            }
+        }
+        assertThat(bitmap.cardinality()).isEqualTo(expected.size());
+        assertThat(bitmap.toArray()).containsExactly(toArray(expected));
+
+        // удаление до пустого множества: плотный блок снова становится массивом, пустые блоки убираются
+        for (int value : toArray(expected)) {
+            assertThat(bitmap.remove(value)).isTrue();
+        }
+        assertThat(bitmap.isEmpty()).isTrue();
+        assertThat(bitmap.toArray()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен пересекать блоки всех видов и считать размер пересечения")
+    void andTest() {
+        IntBitmap first = new IntBitmap();
+        IntBitmap second = new IntBitmap();
+        List<Integer> expected = new ArrayList<>();
+
+        // блок 0: карта с картой, блок 1: массив с картой, блок 2: массив с массивом
+        for (int value = 0; value < 10_000; value++) {
+            first.add(value);
+            if (value % 2 == 0) {
+                second.add(value);
+                expected.add(value);
+            }
+        }
+        for (int value = 1 << 16; value < (1 << 16) + 5_000; value++) {
+            second.add(value);
+        }
+        for (int value = 1 << 16; value < (1 << 16) + 100; value += 10) {
+            first.add(value);
+            expected.add(value);
+        }
+        first.add((2 << 16) + 1);
+        first.add((2 << 16) + 2);
+        second.add((2 << 16) + 2);
+        expected.add((2 << 16) + 2);
+
+        int[] expectedValues = expected.stream().mapToInt(Integer::intValue).toArray();
+        assertThat(first.and(second)).containsExactly(expectedValues);
+        assertThat(second.and(first)).containsExactly(expectedValues);
+        assertThat(first.andCardinality(second)).isEqualTo(expectedValues.length);
+        assertThat(first.andCardinality(new IntBitmap())).isZero();
+    }
+
+    private static int[] toArray(TreeSet<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.dal.storage.memory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IntSetTest {
+
+    @Test
+    @DisplayName("должен добавлять, находить и удалять элементы без повторов")
+    void addContainsRemoveTest() {
+        IntSet set = new IntSet();
+
+        assertThat(set.add(5)).isTrue();
+        assertThat(set.add(5)).isFalse();
+        assertThat(set.add(3)).isTrue();
+        assertThat(set.contains(5)).isTrue();
+        assertThat(set.contains(4)).isFalse();
+        assertThat(set.size()).isEqualTo(2);
+
+        assertThat(set.remove(5)).isTrue();
+        assertThat(set.remove(5)).isFalse();
+        assertThat(set.toSortedArray()).containsExactly(3);
+    }
+
+    @Test
+    @DisplayName("должен совпадать с TreeSet на случайной последовательности операций")
+    void randomOperationsTest() {
+        IntSet set = new IntSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            int value = 1 + random.nextInt(500);
+            if (random.nextBoolean()) {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            } else {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            }
+        }
+
+        assertThat(set.toSortedArray()).containsExactly(expected.stream().mapToInt(Integer::intValue).toArray());
+        assertThat(set.size()).isEqualTo(expected.size());
+    }
+
+    @Test
+    @DisplayName("должен возвращать пересечение двух множеств по возрастанию")
+    void intersectTest() {
+        IntSet first = new IntSet(List.of(1, 2, 3, 10, 20));
+        IntSet second = new IntSet(List.of(20, 3, 7));
+
+        assertThat(first.intersect(second)).containsExactly(3, 20);
+        assertThat(second.intersect(new IntSet())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен отклонять неположительные значения")
+    void nonPositiveValueTest() {
+        assertThatThrownBy(() -> new IntSet().add(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.storage.like.LikeStorage;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FilmLikesIndexTest {
+
+    private FilmLikesIndex filmLikesIndex;
+
+    @BeforeEach
+    void setUp() {
+        LikeStorage likeStorage = mock(LikeStorage.class);
+        // пользователь 1 лайкнул 1, 2, 3; пользователь 2 (два общих фильма) — 1, 2, 4;
+        // пользователь 3 (один общий) — 3, 5, 4; пользователь 4 без общих — 6
+        when(likeStorage.getLikedFilmIdsByUser()).thenReturn(Map.of(
+                1, Set.of(1, 2, 3),
+                2, Set.of(1, 2, 4),
+                3, Set.of(3, 4, 5),
+                4, Set.of(6)));
+
+        filmLikesIndex = new FilmLikesIndex(likeStorage);
+        filmLikesIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("должен рекомендовать фильмы похожих пользователей по сумме сходства, без уже лайкнутых")
+    void recommendationsTest() {
+        // фильм 4: 2 + 1, фильм 5: 1, фильм 6 у непохожего пользователя не попадает
+        assertThat(filmLikesIndex.getRecommendedFilmIds(1, 10)).containsExactly(4, 5);
+        assertThat(filmLikesIndex.getRecommendedFilmIds(1, 1)).containsExactly(4);
+        assertThat(filmLikesIndex.getRecommendedFilmIds(99, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен обновлять рекомендации при добавлении и удалении лайков")
+    void changeLikesTest() {
+        filmLikesIndex.addLike(6, 1);
+        filmLikesIndex.addLike(7, 4);
+        filmLikesIndex.removeLike(4, 2);
+        filmLikesIndex.removeLike(4, 3);
+
+        // с пользователем 4 теперь общий фильм 6, фильм 4 больше никто не лайкает
+        assertThat(filmLikesIndex.getRecommendedFilmIds(1, 10)).containsExactly(5, 7);
+    }
+
+    @Test
+    @DisplayName("должен сливать лайки нескольких пользователей и сортировать фильмы по их числу")
+    void mostLikedFilmsTest() {
+        // фильм 4 — у пользователей 2 и 3, остальные по одному разу; пользователь 99 без лайков
+        assertThat(filmLikesIndex.getMostLikedFilmIds(new int[]{2, 3, 99}, 3)).containsExactly(4, 1, 2);
+        assertThat(filmLikesIndex.getMostLikedFilmIds(new int[0], 3)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен находить похожие фильмы по коэффициенту Жаккара лайкнувших")
+    void similarFilmsTest() {
+        // фильм 100 лайкнули 1..20, фильм 101 — 1..18 (Жаккар 0.9), фильм 102 — 1..12 (0.6),
+        // фильм 103 — 15..40 (6 общих из 40, 0.15)
+        for (int userId = 1; userId <= 40; userId++) {
+            if (userId <= 20) {
+                filmLikesIndex.addLike(100, userId);
+            }
+            if (userId <= 18) {
+                filmLikesIndex.addLike(101, userId);
+            }
+            if (userId <= 12) {
+                filmLikesIndex.addLike(102, userId);
+            }
+            if (userId >= 15) {
+                filmLikesIndex.addLike(103, userId);
+            }
+        }
+
+        // параметры хешей фиксированы, поэтому набор LSH-кандидатов детерминирован; кандидаты
+        // упорядочены по точному сходству
+        assertThat(filmLikesIndex.getSimilarFilmIds(100, 2)).containsExactly(101, 102);
+        assertThat(filmLikesIndex.getSimilarFilmIds(999, 10)).isEmpty();
+
+        // после удаления лайков подпись пересчитывается при поиске: фильм 101 становится дальше фильма 102
+        for (int userId = 1; userId <= 14; userId++) {
+            filmLikesIndex.removeLike(101, userId);
+        }
+        assertThat(filmLikesIndex.getSimilarFilmIds(100, 1)).containsExactly(102);
+    }
+
+    @Test
+    @DisplayName("должен после удаления лайков находить те же похожие фильмы, что и индекс, построенный заново")
+    void similarFilmsAfterRemovalsTest() {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<Integer, Set<Integer>> likedFilmIds = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            int filmId = 100 + random.nextInt(30);
+            int userId = 1 + random.nextInt(60);
+            if (random.nextInt(3) == 0) {
+                filmLikesIndex.removeLike(filmId, userId);
+                Set<Integer> films = likedFilmIds.get(userId);
+                if (films != null) {
+                    films.remove(filmId);
+                }
+            } else {
+                filmLikesIndex.addLike(filmId, userId);
+                likedFilmIds.computeIfAbsent(userId, id -> new HashSet<>()).add(filmId);
+            }
+        }
+
+        LikeStorage likeStorage = mock(LikeStorage.class);
+        when(likeStorage.getLikedFilmIdsByUser()).thenReturn(likedFilmIds);
+        FilmLikesIndex rebuilt = new FilmLikesIndex(likeStorage);
+        rebuilt.rebuild();
+
+        // хеши детерминированы, поэтому пересчитанные подписи совпадают с подписями нового индекса
+        for (int filmId = 100; filmId < 130; filmId++) {
+            assertThat(filmLikesIndex.getSimilarFilmIds(filmId, 5)).isEqualTo(rebuilt.getSimilarFilmIds(filmId, 5));
+        }
+    }
+
+    @Test
+    @DisplayName("не должен заменять подпись снимком, если лайки фильма менялись после него")
+    void staleSignatureSnapshotTest() {
+        MinHashLsh minHashLsh = new MinHashLsh();
+        for (int userId = 1; userId <= 200; userId++) {
+            minHashLsh.addUser(1, userId);
+        }
+        // среди 200 пользователей кто-то дает минимум подписи, после удаления всех, кроме 1, подпись устарела
+        for (int userId = 2; userId <= 200; userId++) {
+            minHashLsh.removeUser(1, userId, false);
+        }
+        int version = minHashLsh.staleFilms().get(1);
+
+        minHashLsh.addUser(1, 300);
+        assertThat(minHashLsh.replaceStale(1, version, MinHashLsh.signatureOf(new int[]{1}))).isFalse();
+
+        version = minHashLsh.staleFilms().get(1);
+        assertThat(minHashLsh.replaceStale(1, version, MinHashLsh.signatureOf(new int[]{1, 300}))).isTrue();
+        assertThat(minHashLsh.staleFilms()).isEmpty();
+    }
+}
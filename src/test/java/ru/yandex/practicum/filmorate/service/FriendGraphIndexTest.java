@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FriendGraphIndexTest {
+
+    private FriendGraphIndex friendGraphIndex;
+
+    @BeforeEach
+    void setUp() {
+        UserStorage userStorage = mock(UserStorage.class);
+        // у пользователя 1 друзья 2, 3, 4, у пользователя 5 — 3, 4, 6
+        when(userStorage.getAllFriendsIds()).thenReturn(Map.of(1, Set.of(2, 3, 4), 5, Set.of(3, 4, 6)));
+
+        friendGraphIndex = new FriendGraphIndex(userStorage);
+        friendGraphIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("должен находить общих друзей по возрастанию id")
+    void rebuildTest() {
+        assertThat(friendGraphIndex.getCommonFriendIds(1, 5)).containsExactly(3, 4);
+        assertThat(friendGraphIndex.getCommonFriendIds(1, 7)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен учитывать добавление, удаление и полную замену друзей")
+    void changeFriendsTest() {
+        friendGraphIndex.addFriend(1, 6);
+        friendGraphIndex.removeFriend(5, 3);
+        assertThat(friendGraphIndex.getCommonFriendIds(1, 5)).containsExactly(4, 6);
+
+        friendGraphIndex.setFriends(5, List.of(2));
+        assertThat(friendGraphIndex.getCommonFriendIds(1, 5)).containsExactly(2);
+
+        friendGraphIndex.setFriends(5, List.of());
+        assertThat(friendGraphIndex.getCommonFriendIds(1, 5)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен пересекать плотные и разреженные блоки битовых карт")
+    void denseAndSparseBlocksTest() {
+        // у пользователя 10 — каждый id до 20000 (плотный блок) и 70000..70009 (другой блок)
+        List<Integer> dense = IntStream.rangeClosed(1, 20_000).boxed().toList();
+        friendGraphIndex.setFriends(10, dense);
+        IntStream.range(70_000, 70_010).forEach(id -> friendGraphIndex.addFriend(10, id));
+        // у пользователя 11 — каждый третий id и 70005
+        friendGraphIndex.setFriends(11, IntStream.iterate(3, id -> id <= 30_000, id -> id + 3).boxed().toList());
+        friendGraphIndex.addFriend(11, 70_005);
+
+        List<Integer> common = friendGraphIndex.getCommonFriendIds(10, 11);
+        assertThat(common).hasSize(6_667).startsWith(3, 6, 9).endsWith(19_998, 70_005);
+
+        // после удаления плотный блок становится массивом, пересечение не меняется кроме удаленных
+        IntStream.rangeClosed(1, 18_000).forEach(id -> friendGraphIndex.removeFriend(10, id));
+        assertThat(friendGraphIndex.getCommonFriendIds(10, 11)).hasSize(667).startsWith(18_003).endsWith(70_005);
+        assertThat(friendGraphIndex.getCommonFriendIds(11, 10)).isEqualTo(friendGraphIndex.getCommonFriendIds(10, 11));
+    }
+
+    @Test
+    @DisplayName("должен предлагать друзей друзей по числу общих друзей, без самого пользователя и его друзей")
+    void suggestedFriendsTest() {
+        // друзья 2, 3, 4 пользователя 1 дружат с 5, 6, 7
+        friendGraphIndex.setFriends(2, List.of(1, 3, 6, 7));
+        friendGraphIndex.setFriends(3, List.of(6, 7));
+        friendGraphIndex.setFriends(4, List.of(5, 6));
+
+        assertThat(friendGraphIndex.getSuggestedFriendIds(1, 10)).containsExactly(6, 7, 5);
+        assertThat(friendGraphIndex.getSuggestedFriendIds(1, 2)).containsExactly(6, 7);
+        assertThat(friendGraphIndex.getSuggestedFriendIds(6, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен отбирать лучших кандидатов среди тысяч друзей друзей")
+    void suggestedFriendsTopTest() {
+        // у пользователя 100000 — 2000 друзей, у друга k в друзьях кандидаты 50000..50000 + k % 100
+        friendGraphIndex.setFriends(100_000, IntStream.rangeClosed(1, 2_000).boxed().toList());
+        for (int friendId = 1; friendId <= 2_000; friendId++) {
+            friendGraphIndex.setFriends(friendId, IntStream.rangeClosed(50_000, 50_000 + friendId % 100).boxed().toList());
+        }
+
+        // кандидата 50000 + j знают друзья с k % 100 >= j: чем меньше j, тем больше общих друзей
+        assertThat(friendGraphIndex.getSuggestedFriendIds(100_000, 3)).containsExactly(50_000, 50_001, 50_002);
+    }
+
+    @Test
+    @DisplayName("должен находить длину кратчайшей цепочки дружбы с учетом направления и ограничения глубины")
+    void distanceTest() {
+        // у пользователя 1 друзья 2, 3, 4; добавляем 2 -> 3 и 3 -> 6: кратчайший путь 1 -> 3 -> 6
+        friendGraphIndex.setFriends(2, List.of(3));
+        friendGraphIndex.setFriends(3, List.of(6));
+
+        assertThat(friendGraphIndex.getDistance(1, 1, 6)).isZero();
+        assertThat(friendGraphIndex.getDistance(1, 3, 6)).isEqualTo(1);
+        assertThat(friendGraphIndex.getDistance(1, 6, 6)).isEqualTo(2);
+        assertThat(friendGraphIndex.getDistance(1, 6, 1)).isEqualTo(-1);
+        // дружба односторонняя: от 6 до 1 цепочки нет
+        assertThat(friendGraphIndex.getDistance(6, 1, 6)).isEqualTo(-1);
+
+        friendGraphIndex.removeFriend(1, 3);
+        friendGraphIndex.removeFriend(1, 4);
+        assertThat(friendGraphIndex.getDistance(1, 6, 6)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("должен находить расстояние на длинной цепочке и большом графе")
+    void distanceOnLargeGraphTest() {
+        // кольцо из 100000 пользователей, каждый дружит со следующим и с id + 1000
+        int users = 100_000;
+        for (int id = 1; id <= users; id++) {
+            friendGraphIndex.setFriends(id, List.of(id % users + 1, (id + 999) % users + 1));
+        }
+
+        // от 1 до 5004 разница 5003: пять шагов по 1000 и три по 1
+        assertThat(friendGraphIndex.getDistance(1, 5_004, 10)).isEqualTo(8);
+        assertThat(friendGraphIndex.getDistance(1, 5_004, 7)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.dal.storage.genre.GenreMask;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GenreMaskIndexTest {
+
+    private GenreMaskIndex genreMaskIndex;
+
+    @BeforeEach
+    void setUp() {
+        FilmStorage filmStorage = mock(FilmStorage.class);
+        // фильм 1 — жанры 1 и 4, фильм 2 — жанр 1, фильм 3 — без жанров, фильм 4 — жанры 1, 2 и 4
+        when(filmStorage.getGenreMasks()).thenReturn(Map.of(
+                1, GenreMask.ofIds(List.of(1, 4)),
+                2, GenreMask.ofIds(List.of(1)),
+                3, 0L,
+                4, GenreMask.ofIds(List.of(1, 2, 4))));
+
+        genreMaskIndex = new GenreMaskIndex(filmStorage);
+        genreMaskIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("должен отбирать фильмы со всеми жанрами набора")
+    void matchAllTest() {
+        assertThat(genreMaskIndex.getFilmIds(GenreMask.ofIds(List.of(1, 4)), true, 0, 10)).containsExactly(1, 4);
+        assertThat(genreMaskIndex.getFilmIds(GenreMask.ofIds(List.of(1)), true, 0, 10)).containsExactly(1, 2, 4);
+        assertThat(genreMaskIndex.getFilmIds(GenreMask.ofIds(List.of(3)), true, 0, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен отбирать фильмы хотя бы с одним жанром набора")
+    void matchAnyTest() {
+        assertThat(genreMaskIndex.getFilmIds(GenreMask.ofIds(List.of(2, 4)), false, 0, 10)).containsExactly(1, 4);
+        assertThat(genreMaskIndex.getFilmIds(GenreMask.ofIds(List.of(3, 5)), false, 0, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен отдавать страницу после фильма с id = after")
+    void pageTest() {
+        long mask = GenreMask.ofIds(List.of(1));
+
+        assertThat(genreMaskIndex.getFilmIds(mask, true, 0, 2)).containsExactly(1, 2);
+        assertThat(genreMaskIndex.getFilmIds(mask, true, 2, 2)).containsExactly(4);
+        assertThat(genreMaskIndex.getFilmIds(mask, true, 4, 2)).isEmpty();
+        assertThat(genreMaskIndex.getFilmIds(mask, true, Integer.MAX_VALUE, 2)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("должен учитывать новые фильмы и замену жанров")
+    void setGenresTest() {
+        genreMaskIndex.setGenres(film(3, 4));
+        genreMaskIndex.setGenres(film(1));
+        genreMaskIndex.setGenres(film(100, 1, 4));
+
+        assertThat(genreMaskIndex.getFilmIds(GenreMask.ofIds(List.of(4)), true, 0, 10)).containsExactly(3, 4, 100);
+        assertThat(genreMaskIndex.getFilmIds(GenreMask.ofIds(List.of(1, 4)), true, 0, 10)).containsExactly(4, 100);
+    }
+
+    private static Film film(int id, Integer... genreIds) {
+        return Film.builder()
+                   .id(id)
+                   .genres(Arrays.stream(genreIds).map(genreId -> new Genre(genreId, null)).toList())
+                   .build();
+    }
+}
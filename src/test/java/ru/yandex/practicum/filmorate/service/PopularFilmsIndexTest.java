@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.dal.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PopularFilmsIndexTest {
+
+    private PopularFilmsIndex popularFilmsIndex;
+
+    @BeforeEach
+    void setUp() {
+        LikeStorage likeStorage = mock(LikeStorage.class);
+        // фильм 1 — 2 лайка, фильм 2 — 3 лайка, фильм 3 — без лайков
+        when(likeStorage.getLikesCountByFilm()).thenReturn(Map.of(1, 2, 2, 3, 3, 0));
+
+        FilmStorage filmStorage = mock(FilmStorage.class);
+        // фильм 1 — комедия PG 2015, фильм 2 — драма PG-13 2015, фильм 3 — комедия и драма PG-13 2020
+        doAnswer(invocation -> {
+            Consumer<Film> consumer = invocation.getArgument(0);
+            consumer.accept(film(1, 2, 2015, 1));
+            consumer.accept(film(2, 3, 2015, 2));
+            consumer.accept(film(3, 3, 2020, 1, 2));
+            return null;
+        }).when(filmStorage).streamAllFilms(any());
+
+        popularFilmsIndex = new PopularFilmsIndex(likeStorage, filmStorage);
+        popularFilmsIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("должен строить рейтинг по убыванию лайков, при равенстве — по id")
+    void rebuildTest() {
+        assertThat(popularFilmsIndex.getPopularFilmIds(10)).containsExactly(2, 1, 3);
+        assertThat(popularFilmsIndex.getPopularFilmIds(2)).containsExactly(2, 1);
+    }
+
+    @Test
+    @DisplayName("должен менять позицию фильма при добавлении и удалении лайков")
+    void changeLikesTest() {
+        popularFilmsIndex.addLike(3);
+        popularFilmsIndex.addLike(3);
+        popularFilmsIndex.addLike(3);
+        popularFilmsIndex.removeLike(2);
+
+        // фильм 3 — 3 лайка, фильмы 1 и 2 — по 2 лайка
+        assertThat(popularFilmsIndex.getPopularFilmIds(10)).containsExactly(3, 1, 2);
+    }
+
+    @Test
+    @DisplayName("должен добавлять новый фильм в конец рейтинга")
+    void addFilmTest() {
+        popularFilmsIndex.addFilm(film(4, 1, 2000));
+
+        assertThat(popularFilmsIndex.getPopularFilmIds(10)).containsExactly(2, 1, 3, 4);
+    }
+
+    @Test
+    @DisplayName("должен фильтровать рейтинг по жанру, MPA и году выхода")
+    void filteredRankingTest() {
+        assertThat(popularFilmsIndex.getPopularFilmIds(10, 1, null, null)).containsExactly(1, 3);
+        assertThat(popularFilmsIndex.getPopularFilmIds(10, null, 3, null)).containsExactly(2, 3);
+        assertThat(popularFilmsIndex.getPopularFilmIds(10, 1, null, 2015)).containsExactly(1);
+        assertThat(popularFilmsIndex.getPopularFilmIds(10, 2, 3, 2020)).containsExactly(3);
+        assertThat(popularFilmsIndex.getPopularFilmIds(10, 6, null, null)).isEmpty();
+
+        // лайки меняют порядок и внутри отфильтрованных рейтингов: у фильма 3 — 4 лайка
+        for (int i = 0; i < 4; i++) {
+            popularFilmsIndex.addLike(3);
+        }
+        assertThat(popularFilmsIndex.getPopularFilmIds(10, 1, null, null)).containsExactly(3, 1);
+        assertThat(popularFilmsIndex.getPopularFilmIds(1, null, 3, null)).containsExactly(3);
+    }
+
+    @Test
+    @DisplayName("должен переносить фильм между отфильтрованными рейтингами при обновлении")
+    void updateFilmTest() {
+        popularFilmsIndex.updateFilm(film(1, 3, 2020, 2));
+
+        assertThat(popularFilmsIndex.getPopularFilmIds(10, 1, null, null)).containsExactly(3);
+        assertThat(popularFilmsIndex.getPopularFilmIds(10, 2, 3, 2020)).containsExactly(1, 3);
+        assertThat(popularFilmsIndex.getPopularFilmIds(10, null, null, 2015)).containsExactly(2);
+        assertThat(popularFilmsIndex.getPopularFilmIds(10)).containsExactly(2, 1, 3);
+    }
+
+    private static Film film(int id, int mpaId, int year, int... genreIds) {
+        return Film.builder()
+                   .id(id)
+                   .name("Фильм " + id)
+                   .description("Описание")
+                   .releaseDate(LocalDate.of(year, 1, 1))
+                   .duration(100)
+                   .mpa(new Mpa(mpaId, null))
+                   .genres(Arrays.stream(genreIds).mapToObj(genreId -> new Genre(genreId, null)).toList())
+                   .build();
+    }
+}
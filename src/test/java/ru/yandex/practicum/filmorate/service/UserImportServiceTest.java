@@ -0,0 +1,193 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptionDuplicate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserImportResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserImportServiceTest {
+
+    private static ValidatorFactory validatorFactory;
+    private static Validator validator;
+
+    private UserStorage userStorage;
+    private UserImportService userImportService;
+
+    @BeforeAll
+    static void setUpValidator() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        validatorFactory.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        userStorage = mock(UserStorage.class);
+        // сервис дополняет множества занятых значений, поэтому мок отдает изменяемые множества
+        when(userStorage.findExistingEmails(anyCollection())).thenAnswer(invocation -> new HashSet<String>());
+        when(userStorage.findExistingLogins(anyCollection())).thenAnswer(invocation -> new HashSet<String>());
+
+        userImportService = new UserImportService(userStorage, JsonMapper.builder().findAndAddModules().build(),
+                validator);
+    }
+
+    @Test
+    @DisplayName("должен сообщать об ошибках разбора и валидации с номером строки и импортировать остальные строки")
+    void parseAndValidationErrorsTest() throws IOException {
+        UserImportResult result = importUsers(
+                user("user1@mail.ru", "user1"),
+                "{not a json",
+                "",
+                user("wrong-email", "user3"),
+                "{\"email\":\"user5@mail.ru\",\"login\":\"user 5\",\"birthday\":\"2000-01-01\"}",
+                "{\"email\":\"user6@mail.ru\",\"login\":\"user6\",\"birthday\":\"3000-01-01\"}",
+                user("user7@mail.ru", "user7"));
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(UserImportResult.LineError::getLine).containsExactly(2, 4, 5, 6);
+        assertThat(result.getErrors().get(0).getError()).startsWith("Некорректный JSON");
+        assertThat(result.getErrors().get(1).getError()).isEqualTo("Ошибки валидации: email: Email должен быть корректным");
+        assertThat(result.getErrors().get(2).getError()).contains("Логин не должен содержать пробелы");
+        assertThat(result.getErrors().get(3).getError()).contains("Дата рождения не может быть в будущем");
+
+        verify(userStorage).addUsers(argThat(users -> users.stream().map(User::getLogin).toList()
+                                                           .equals(List.of("user1", "user7"))));
+    }
+
+    @Test
+    @DisplayName("должен подставлять логин вместо пустого имени")
+    void emptyNameTest() throws IOException {
+        importUsers(user("user1@mail.ru", "user1"));
+
+        verify(userStorage).addUsers(argThat(users -> users.size() == 1
+                && "user1".equals(users.get(0).getName())));
+    }
+
+    @Test
+    @DisplayName("должен отклонять повтор email и логина внутри одной пачки")
+    void duplicatesInsideChunkTest() throws IOException {
+        UserImportResult result = importUsers(
+                user("user1@mail.ru", "user1"),
+                user("user1@mail.ru", "user2"),
+                user("user3@mail.ru", "user1"),
+                // email строки 3 не занят, так как строка отклонена по логину
+                user("user3@mail.ru", "user4"));
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(UserImportResult.LineError::getLine).containsExactly(2, 3);
+        assertThat(result.getErrors().get(0).getError())
+                .isEqualTo("Email user1@mail.ru уже занят другим пользователем");
+        assertThat(result.getErrors().get(1).getError())
+                .isEqualTo("Логин user1 уже занят другим пользователем");
+
+        verify(userStorage).addUsers(argThat(users -> users.stream().map(User::getLogin).toList()
+                                                           .equals(List.of("user1", "user4"))));
+    }
+
+    @Test
+    @DisplayName("должен отклонять email и логины, уже занятые в БД")
+    void duplicatesInStorageTest() throws IOException {
+        when(userStorage.findExistingEmails(anyCollection()))
+                .thenAnswer(invocation -> new HashSet<>(Set.of("taken@mail.ru")));
+        when(userStorage.findExistingLogins(anyCollection()))
+                .thenAnswer(invocation -> new HashSet<>(Set.of("taken")));
+
+        UserImportResult result = importUsers(
+                user("taken@mail.ru", "user1"),
+                user("user2@mail.ru", "taken"),
+                user("user3@mail.ru", "user3"));
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(UserImportResult.LineError::getLine).containsExactly(1, 2);
+    }
+
+    @Test
+    @DisplayName("должен разбивать импорт на пачки по CHUNK_SIZE строк")
+    void chunksTest() throws IOException {
+        String[] lines = new String[UserImportService.CHUNK_SIZE + 1];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = user("user" + i + "@mail.ru", "user" + i);
+        }
+
+        UserImportResult result = importUsers(lines);
+
+        assertThat(result.getImported()).isEqualTo(lines.length);
+        assertThat(result.getErrors()).isEmpty();
+        verify(userStorage).addUsers(argThat(users -> users.size() == UserImportService.CHUNK_SIZE));
+        verify(userStorage).addUsers(argThat(users -> users.size() == 1));
+    }
+
+    @Test
+    @DisplayName("должен вставлять пачку построчно, если пакетная вставка откатилась")
+    void fallbackToOneByOneTest() throws IOException {
+        when(userStorage.addUsers(any())).thenThrow(new ValidationExceptionDuplicate("Email уже занят"));
+        when(userStorage.addUser(any())).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            if (user.getLogin().equals("user2")) {
+                throw new ValidationExceptionDuplicate("Логин user2 уже занят другим пользователем");
+            }
+            return user;
+        });
+
+        UserImportResult result = importUsers(
+                user("user1@mail.ru", "user1"),
+                user("user2@mail.ru", "user2"),
+                user("user3@mail.ru", "user3"));
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).hasSize(1);
+        assertThat(result.getErrors().get(0).getLine()).isEqualTo(2);
+        assertThat(result.getErrors().get(0).getError())
+                .isEqualTo("Логин user2 уже занят другим пользователем");
+        verify(userStorage, times(3)).addUser(any());
+    }
+
+    @Test
+    @DisplayName("не должен обращаться к хранилищу, если в файле нет корректных строк")
+    void noValidLinesTest() throws IOException {
+        UserImportResult result = importUsers("", "{not a json");
+
+        assertThat(result.getImported()).isZero();
+        assertThat(result.getErrors()).extracting(UserImportResult.LineError::getLine).containsExactly(2);
+        verify(userStorage, never()).addUsers(any());
+    }
+
+    private UserImportResult importUsers(String... lines) throws IOException {
+        byte[] body = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return userImportService.importUsers(new ByteArrayInputStream(body));
+    }
+
+    private static String user(String email, String login) {
+        return "{\"email\":\"" + email + "\",\"login\":\"" + login + "\",\"birthday\":\"2000-01-01\"}";
+    }
+}
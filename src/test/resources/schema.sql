@@ -3,7 +3,9 @@ CREATE TABLE IF NOT EXISTS users (
     email VARCHAR(255) NOT NULL,
     login VARCHAR(50) NOT NULL,
     name VARCHAR(100),
-    birthday DATE
+    birthday DATE,
+    CONSTRAINT users_email_uq UNIQUE (email),
+    CONSTRAINT users_login_uq UNIQUE (login)
 );
 CREATE TABLE IF NOT EXISTS mpa (
     id SERIAL PRIMARY KEY,
@@ -11,7 +13,9 @@ CREATE TABLE IF NOT EXISTS mpa (
 );
 CREATE TABLE IF NOT EXISTS genres (
     id SERIAL PRIMARY KEY,
-    name VARCHAR(100) NOT NULL
+    name VARCHAR(100) NOT NULL,
+    -- жанр занимает бит 1 << id в films.genre_mask
+    CONSTRAINT genres_id_mask_chk CHECK (id BETWEEN 1 AND 63)
 );
 CREATE TABLE IF NOT EXISTS films (
     id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -19,23 +23,28 @@ CREATE TABLE IF NOT EXISTS films (
     description VARCHAR(200),
     release_date DATE NOT NULL,
     duration INT NOT NULL,
-    mpa_id INT REFERENCES mpa(id)
+    mpa_id INT REFERENCES mpa(id),
+    genre_mask BIGINT NOT NULL DEFAULT 0
 );
 -- Таблица лайков (многие ко многим между films и users)
 CREATE TABLE IF NOT EXISTS likes (
-    film_id INT REFERENCES films(id),
-    user_id INT REFERENCES users(id)
+    film_id INT NOT NULL REFERENCES films(id),
+    user_id INT NOT NULL REFERENCES users(id),
+    CONSTRAINT likes_pk PRIMARY KEY (film_id, user_id)
 );
 -- Таблица друзей (двусторонняя связь пользователей)
 CREATE TABLE IF NOT EXISTS friends (
-    user_id INT REFERENCES users(id),
-    friend_id INT REFERENCES users(id)
+    user_id INT NOT NULL REFERENCES users(id),
+    friend_id INT NOT NULL REFERENCES users(id),
+    CONSTRAINT friends_pk PRIMARY KEY (user_id, friend_id)
 );
 -- Таблица жанров фильмов (многие ко многим)
 CREATE TABLE IF NOT EXISTS film_genres (
-    film_id INT REFERENCES films(id),
-    genre_id INT REFERENCES genres(id)
+    film_id INT NOT NULL REFERENCES films(id),
+    genre_id INT NOT NULL REFERENCES genres(id),
+    CONSTRAINT film_genres_pk PRIMARY KEY (film_id, genre_id)
 );
+-- Индексы, ограничения и изменения уже созданных таблиц — в версионных миграциях db/migration
 
 
 